@@ -0,0 +1,62 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Measures heap allocation per request in the server's steady state. Starts
+         a server in this process, sends repeated same-shape add requests over
+         a real connection and reports the bytes allocated by all threads per
+         request, next to the size of the matrices each request moves.
+
+         Usage: java AllocationCheck [size] [requests] [int|long|float|double]
+*/
+import java.lang.management.ManagementFactory;
+
+public class AllocationCheck {
+  private static final int WARMUP_REQUESTS = 200;
+
+  public static void main(String[] args) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int type = args.length > 2 ? parseType(args[2]) : MatrixTypes.TYPE_INT;
+
+    // Element values do not change what a request allocates
+    Object matrix = MatrixTypes.newMatrix(type, size, size);
+
+    try (LocalServer server = LocalServer.start();
+        LocalServer.Session session = server.openTcp()) {
+      for (int k = 0; k < WARMUP_REQUESTS; k++) {
+        session.add(matrix, matrix);
+      }
+      long before = allocatedBytes();
+      for (int k = 0; k < requests; k++) {
+        session.add(matrix, matrix);
+      }
+      long perRequest = (allocatedBytes() - before) / requests;
+
+      System.out.println("Transport: " + session.getTransport().getDescription());
+      System.out.println("Matrix bytes per request (2 " + MatrixTypes.name(type) + " operands + result): "
+          + 3L * size * size * MatrixTypes.bytesPerElement(type));
+      System.out.println("Bytes allocated per request, all threads: " + perRequest);
+    }
+  }
+
+  private static int parseType(String name) {
+    for (int type = MatrixTypes.TYPE_INT; type <= MatrixTypes.TYPE_DOUBLE; type++) {
+      if (MatrixTypes.name(type).equals(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown element type " + name);
+  }
+
+  private static long allocatedBytes() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long total = 0;
+    for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+      if (bytes > 0) {
+        total += bytes;
+      }
+    }
+    return total;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Size-classed pool of matrix and I/O buffers shared by all connections.
+         Matrices are pooled by element type and shape. Each connection works
+         through its own Arena so that repeated requests of the same type and
+         shape reuse buffers without allocating. Setting the system
+         property matrix.pool.debug=true records where every buffer was taken
+         and reports buffers that were never handed back. Pooled matrices are
+         capped in total bytes, evicting the least recently used shapes first,
+         so clients sending many different shapes cannot pin memory for good.
+*/
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BufferPool {
+  private static final Logger LOGGER = Logger.getLogger(BufferPool.class.getName());
+  private static final boolean DEBUG = Boolean.getBoolean("matrix.pool.debug");
+  private static final int MAX_PER_CLASS = 8; // Buffers kept per size class
+  private static final long MAX_POOLED_MATRIX_BYTES = 32L * 1024 * 1024; // Across all shapes
+  private static final int MAX_ARENA_MATRICES = 8; // Free matrices kept by one connection
+  private static final int MIN_IO_BUFFER = 8192;
+
+  private static final BufferPool SHARED = new BufferPool();
+
+  // Access ordered, so iteration starts at the least recently used shape
+  private final LinkedHashMap<Long, ArrayDeque<Object>> matrices = new LinkedHashMap<>(16, 0.75f, true);
+  // I/O buffers are sized by matrix width, so there are only a few classes
+  private final Map<Integer, ArrayDeque<byte[]>> ioBuffers = new HashMap<>();
+  private long pooledMatrixBytes;
+
+  public static BufferPool shared() {
+    return SHARED;
+  }
+
+  public static boolean isDebugEnabled() {
+    return DEBUG;
+  }
+
+  public Arena newArena(String owner) {
+    return new Arena(this, owner);
+  }
+
+  synchronized Object takeMatrix(int type, int rows, int cols) {
+    long key = shapeKey(type, rows, cols);
+    ArrayDeque<Object> free = matrices.get(key);
+    if (free == null) {
+      return MatrixTypes.newMatrix(type, rows, cols);
+    }
+    Object matrix = free.pollFirst();
+    pooledMatrixBytes -= matrixBytes(matrix);
+    if (free.isEmpty()) {
+      matrices.remove(key);
+    }
+    return matrix;
+  }
+
+  synchronized void giveMatrix(Object matrix) {
+    long bytes = matrixBytes(matrix);
+    if (bytes > MAX_POOLED_MATRIX_BYTES) {
+      return;
+    }
+    long key = shapeKey(MatrixTypes.typeOf(matrix), MatrixTypes.rows(matrix), MatrixTypes.cols(matrix));
+    ArrayDeque<Object> free = matrices.computeIfAbsent(key, k -> new ArrayDeque<>());
+    if (free.size() < MAX_PER_CLASS) {
+      free.addFirst(matrix);
+      pooledMatrixBytes += bytes;
+      trimMatrices();
+    }
+  }
+
+  // Drops the oldest buffers of the least recently used shapes until under the cap
+  private void trimMatrices() {
+    Iterator<ArrayDeque<Object>> it = matrices.values().iterator();
+    while (pooledMatrixBytes > MAX_POOLED_MATRIX_BYTES && it.hasNext()) {
+      ArrayDeque<Object> free = it.next();
+      while (pooledMatrixBytes > MAX_POOLED_MATRIX_BYTES && !free.isEmpty()) {
+        pooledMatrixBytes -= matrixBytes(free.pollLast());
+      }
+      if (free.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  synchronized byte[] takeBytes(int minSize) {
+    int size = sizeClass(minSize);
+    ArrayDeque<byte[]> free = ioBuffers.get(size);
+    byte[] buffer = free == null ? null : free.pollFirst();
+    return buffer != null ? buffer : new byte[size];
+  }
+
+  synchronized void giveBytes(byte[] buffer) {
+    ArrayDeque<byte[]> free = ioBuffers.computeIfAbsent(buffer.length, k -> new ArrayDeque<>());
+    if (free.size() < MAX_PER_CLASS) {
+      free.addFirst(buffer);
+    }
+  }
+
+  private static long matrixBytes(Object matrix) {
+    return (long) MatrixTypes.rows(matrix) * MatrixTypes.cols(matrix)
+        * MatrixTypes.bytesPerElement(MatrixTypes.typeOf(matrix));
+  }
+
+  // Dimensions are positive ints and the type fits in two bits
+  private static long shapeKey(int type, int rows, int cols) {
+    return ((long) rows << 33) | ((long) cols << 2) | type;
+  }
+
+  // Rounds up to the next power of two so buffers of similar size share a class
+  private static int sizeClass(int minSize) {
+    int size = Math.max(minSize, MIN_IO_BUFFER);
+    int highest = Integer.highestOneBit(size);
+    return highest == size ? size : highest << 1;
+  }
+
+  /*
+   * Per-connection view of the pool. Buffers released back to the arena stay
+   * with the connection and are handed out again without touching the shared
+   * pool, so the steady state of a session is allocation free. Not thread safe;
+   * each arena belongs to a single client handler.
+   */
+  public static class Arena implements AutoCloseable {
+    private final BufferPool pool;
+    private final String owner;
+    private final List<Object> freeMatrices = new ArrayList<>();
+    private final Map<Object, Throwable> outstanding;
+    private byte[] ioBuffer;
+
+    private Arena(BufferPool pool, String owner) {
+      this.pool = pool;
+      this.owner = owner;
+      this.outstanding = DEBUG ? new IdentityHashMap<>() : null;
+    }
+
+    public int[][] acquireMatrix(int rows, int cols) {
+      return (int[][]) acquireMatrix(MatrixTypes.TYPE_INT, rows, cols);
+    }
+
+    // Returns a matrix of the given type (see MatrixTypes); its contents are undefined
+    public Object acquireMatrix(int type, int rows, int cols) {
+      Object matrix = null;
+      for (int i = freeMatrices.size() - 1; i >= 0; i--) {
+        Object candidate = freeMatrices.get(i);
+        if (MatrixTypes.typeOf(candidate) == type && MatrixTypes.rows(candidate) == rows
+            && MatrixTypes.cols(candidate) == cols) {
+          matrix = freeMatrices.remove(i);
+          break;
+        }
+      }
+      if (matrix == null) {
+        matrix = pool.takeMatrix(type, rows, cols);
+      }
+      track(matrix);
+      return matrix;
+    }
+
+    public void releaseMatrix(Object matrix) {
+      if (matrix == null) {
+        return;
+      }
+      untrack(matrix);
+      if (freeMatrices.size() < MAX_ARENA_MATRICES) {
+        freeMatrices.add(matrix);
+      } else {
+        pool.giveMatrix(freeMatrices.remove(0));
+        freeMatrices.add(matrix);
+      }
+    }
+
+    // Returns the connection's I/O buffer, growing it to at least minSize bytes
+    public byte[] ioBuffer(int minSize) {
+      if (ioBuffer == null || ioBuffer.length < minSize) {
+        if (ioBuffer != null) {
+          pool.giveBytes(ioBuffer);
+        }
+        ioBuffer = pool.takeBytes(minSize);
+      }
+      return ioBuffer;
+    }
+
+    @Override
+    public void close() {
+      for (Object matrix : freeMatrices) {
+        pool.giveMatrix(matrix);
+      }
+      freeMatrices.clear();
+      if (ioBuffer != null) {
+        pool.giveBytes(ioBuffer);
+        ioBuffer = null;
+      }
+      if (outstanding != null && !outstanding.isEmpty()) {
+        for (Throwable site : outstanding.values()) {
+          LOGGER.log(Level.WARNING, "Buffer leaked by " + owner, site);
+        }
+        outstanding.clear();
+      }
+    }
+
+    private void track(Object buffer) {
+      if (outstanding != null) {
+        outstanding.put(buffer, new Throwable("Acquired here"));
+      }
+    }
+
+    private void untrack(Object buffer) {
+      if (outstanding != null && outstanding.remove(buffer) == null) {
+        LOGGER.log(Level.WARNING, "Buffer released by " + owner + " was not acquired from its arena");
+      }
+    }
+  }
+}
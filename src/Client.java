@@ -5,6 +5,9 @@ Date: November 25, 2024
 Purpose: Client application for matrix processing system. Provides GUI interface 
          for users to input matrix files and displays the results. Handles file reading,
          matrix validation, and communication with the server.
+         Matrix files are read as int, long or double. Float matrices are
+         only sent by programs that use the wire protocol (MatrixProtocol)
+         directly; this client never produces them.
 */
 import javax.swing.*;
 import java.awt.*;
@@ -15,6 +18,8 @@ import java.awt.event.WindowEvent;
 import java.io.*;
 import java.net.*;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.logging.FileHandler;
@@ -32,12 +37,25 @@ public class Client extends JFrame {
   private JButton clearButton;
   private JLabel statusLabel;
   private JPanel buttonPanel;
-
-  private ObjectOutputStream output;
-  private ObjectInputStream input;
-  private Socket client;
+  private JTabbedPane matrixTabs;
+  private MatrixTableView matrix1View;
+  private MatrixTableView matrix2View;
+  private MatrixTableView resultView;
+
+  private DataOutputStream output;
+  private DataInputStream input;
+  private final byte[] writeBuffer = new byte[8192];
+  private Transport client;
   private volatile boolean isConnected;
   private Thread resultListenerThread;
+  private final Object sendLock = new Object();
+
+  // Reads and sends matrix files so large files do not block the GUI
+  private final ExecutorService requestExecutor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "matrix-request");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   public Client() {
     super("Matrix Processing Client");
@@ -74,13 +92,24 @@ public class Client extends JFrame {
     northPanel.add(statusLabel, BorderLayout.SOUTH);
     add(northPanel, BorderLayout.NORTH);
 
-    // Center Panel with display area
+    // Center Panel with matrix views above the message area
+    matrix1View = new MatrixTableView("Matrix 1");
+    matrix2View = new MatrixTableView("Matrix 2");
+    resultView = new MatrixTableView("Result");
+    matrixTabs = new JTabbedPane();
+    matrixTabs.addTab("Matrix 1", matrix1View);
+    matrixTabs.addTab("Matrix 2", matrix2View);
+    matrixTabs.addTab("Result", resultView);
+
     displayArea = new JTextArea();
     displayArea.setEditable(false);
     displayArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
     JScrollPane scrollPane = new JScrollPane(displayArea);
     scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
-    add(scrollPane, BorderLayout.CENTER);
+
+    JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, matrixTabs, scrollPane);
+    splitPane.setResizeWeight(0.75);
+    add(splitPane, BorderLayout.CENTER);
 
     // Button Panel
     buttonPanel = new JPanel(new FlowLayout());
@@ -106,18 +135,27 @@ public class Client extends JFrame {
       @Override
       public void actionPerformed(ActionEvent e) {
         displayArea.setText("");
+        matrix1View.clear();
+        matrix2View.clear();
+        resultView.clear();
       }
     });
 
     enterField.addActionListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        processFilename(e.getActionCommand());
+        final String filename = e.getActionCommand();
+        requestExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            processFilename(filename);
+          }
+        });
       }
     });
 
     // Set window properties
-    setSize(600, 400);
+    setSize(800, 600);
     setMinimumSize(new Dimension(400, 300));
     setLocationRelativeTo(null);
     setVisible(true);
@@ -126,11 +164,13 @@ public class Client extends JFrame {
   private void connectToServer() {
     try {
       displayMessage("\nAttempting connection to server...");
-      client = new Socket(SERVER_ADDRESS, PORT);
+      client = Transport.connect(SERVER_ADDRESS, PORT);
       setupStreams();
       isConnected = true;
+      startResultListener();
       updateGUIForConnection(true);
-      displayMessage("\nConnected to server at " + SERVER_ADDRESS);
+      displayMessage("\nConnected to server at " +
+          (client.isUnixDomain() ? client.getDescription() : SERVER_ADDRESS));
       LOGGER.log(Level.INFO, "Connected to server successfully");
     } catch (IOException e) {
       LOGGER.log(Level.SEVERE, "Error connecting to server", e);
@@ -143,18 +183,24 @@ public class Client extends JFrame {
   }
 
   private void setupStreams() throws IOException {
-    output = new ObjectOutputStream(client.getOutputStream());
-    output.flush();
-    input = new ObjectInputStream(client.getInputStream());
+    output = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+    input = new DataInputStream(new BufferedInputStream(client.getInputStream()));
     LOGGER.log(Level.INFO, "Streams established");
   }
 
   private void closeConnection() {
     displayMessage("\nClosing connection...");
     updateGUIForConnection(false);
+    boolean wasConnected = isConnected;
     isConnected = false;
 
     try {
+      if (wasConnected && output != null) {
+        synchronized (sendLock) {
+          output.writeInt(MatrixProtocol.OP_TERMINATE);
+          output.flush();
+        }
+      }
       if (output != null)
         output.close();
       if (input != null)
@@ -211,19 +257,16 @@ public class Client extends JFrame {
       int cols = Integer.parseInt(dimensions[1]);
       validateDimensions(rows, cols);
 
-      // Read both matrices
-      int[][] matrix1 = new int[rows][cols];
-      int[][] matrix2 = new int[rows][cols];
+      // Read both matrices as lines first; their element types depend on the values
+      String[] lines1 = new String[rows];
+      String[] lines2 = new String[rows];
 
       // Read first matrix
       for (int i = 0; i < rows; i++) {
-        String[] values = fileScanner.nextLine().trim().split("\\s+");
-        if (values.length != cols) {
+        lines1[i] = fileScanner.nextLine().trim();
+        if (lines1[i].split("\\s+").length != cols) {
           throw new IOException("Invalid matrix row length at line " + (i + 2));
         }
-        for (int j = 0; j < cols; j++) {
-          matrix1[i][j] = Integer.parseInt(values[j]);
-        }
       }
 
       // Read second matrix (next 4 lines in the file)
@@ -231,21 +274,55 @@ public class Client extends JFrame {
         if (!fileScanner.hasNextLine()) {
           throw new IOException("Missing data for second matrix");
         }
-        String[] values = fileScanner.nextLine().trim().split("\\s+");
-        if (values.length != cols) {
+        lines2[i] = fileScanner.nextLine().trim();
+        if (lines2[i].split("\\s+").length != cols) {
           throw new IOException("Invalid matrix row length in second matrix at line " + (i + rows + 2));
         }
-        for (int j = 0; j < cols; j++) {
-          matrix2[i][j] = Integer.parseInt(values[j]);
-        }
       }
 
-      return new MatrixData(rows, cols, matrix1, matrix2);
+      return new MatrixData(rows, cols, parseMatrix(lines1, cols), parseMatrix(lines2, cols));
     } catch (NumberFormatException e) {
       throw new IOException("Invalid number format in matrix file: " + e.getMessage());
     }
   }
 
+  /*
+   * Picks the narrowest element type that holds every value: int, long when a
+   * value is outside the int range, or double when any value has a decimal
+   * point or exponent. Float is never chosen, as a file gives no way to ask
+   * for single precision. The server widens mixed operands to a common type.
+   */
+  private Object parseMatrix(String[] lines, int cols) {
+    int type = MatrixTypes.TYPE_INT;
+    for (String line : lines) {
+      for (String value : line.split("\\s+")) {
+        if (value.indexOf('.') >= 0 || value.indexOf('e') >= 0 || value.indexOf('E') >= 0) {
+          type = MatrixTypes.TYPE_DOUBLE;
+        } else if (type == MatrixTypes.TYPE_INT) {
+          long val = Long.parseLong(value);
+          if (val != (int) val) {
+            type = MatrixTypes.TYPE_LONG;
+          }
+        }
+      }
+    }
+
+    Object matrix = MatrixTypes.newMatrix(type, lines.length, cols);
+    for (int i = 0; i < lines.length; i++) {
+      String[] values = lines[i].split("\\s+");
+      for (int j = 0; j < cols; j++) {
+        if (type == MatrixTypes.TYPE_INT) {
+          ((int[][]) matrix)[i][j] = Integer.parseInt(values[j]);
+        } else if (type == MatrixTypes.TYPE_LONG) {
+          ((long[][]) matrix)[i][j] = Long.parseLong(values[j]);
+        } else {
+          ((double[][]) matrix)[i][j] = Double.parseDouble(values[j]);
+        }
+      }
+    }
+    return matrix;
+  }
+
   private void validateDimensions(int rows, int cols) throws IOException {
     if (rows <= 0 || cols <= 0) {
       throw new IOException("Invalid matrix dimensions: rows=" + rows + ", cols=" + cols);
@@ -269,15 +346,17 @@ public class Client extends JFrame {
 
   private void sendMatricesToServer(MatrixData matrixData) {
     try {
-      output.writeObject(matrixData.matrix1);
-      output.writeObject(matrixData.matrix2);
-      output.flush();
+      synchronized (sendLock) {
+        output.writeInt(MatrixProtocol.OP_ADD);
+        MatrixProtocol.writeOperand(output, matrixData.matrix1, writeBuffer);
+        MatrixProtocol.writeOperand(output, matrixData.matrix2, writeBuffer);
+        output.writeUTF(""); // Return the result rather than storing it
+        output.flush();
+      }
 
       displayMessage("\nMatrices sent to server successfully!");
-      displayMessage("\nMatrix 1:");
-      displayMatrix(matrixData.matrix1);
-      displayMessage("\nMatrix 2:");
-      displayMatrix(matrixData.matrix2);
+      showMatrix(matrix1View, matrixData.matrix1);
+      showMatrix(matrix2View, matrixData.matrix2);
 
       LOGGER.log(Level.INFO, "Matrices sent to server: " +
           matrixData.rows + "x" + matrixData.cols);
@@ -285,19 +364,18 @@ public class Client extends JFrame {
     } catch (IOException e) {
       LOGGER.log(Level.SEVERE, "Error sending matrices to server", e);
       displayMessage("\nError sending matrices: " + e.getMessage());
-      closeConnection();
+      SwingUtilities.invokeLater(() -> closeConnection());
     }
   }
 
-  private void displayMatrix(int[][] matrix) {
-    StringBuilder sb = new StringBuilder();
-    for (int[] row : matrix) {
-      for (int val : row) {
-        sb.append(String.format("%5d", val)); // Increased spacing for larger numbers
+  private void showMatrix(final MatrixTableView view, final Object matrix) {
+    SwingUtilities.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        view.setMatrix(matrix);
+        matrixTabs.setSelectedComponent(view);
       }
-      sb.append("\n");
-    }
-    displayMessage(sb.toString());
+    });
   }
 
   private void displayMessage(final String message) {
@@ -314,10 +392,10 @@ public class Client extends JFrame {
     private static final long serialVersionUID = 1L;
     final int rows;
     final int cols;
-    final int[][] matrix1;
-    final int[][] matrix2;
+    final Object matrix1;
+    final Object matrix2;
 
-    MatrixData(int rows, int cols, int[][] matrix1, int[][] matrix2) {
+    MatrixData(int rows, int cols, Object matrix1, Object matrix2) {
       this.rows = rows;
       this.cols = cols;
       this.matrix1 = matrix1;
@@ -331,19 +409,25 @@ public class Client extends JFrame {
       public void run() {
         try {
           while (isConnected) {
-            Object result = input.readObject();
-            if (result instanceof int[][]) {
-              displayMessage("\n=== SOLUTION MATRIX (Concurrent Sum) ===\n");
-              int[][] solutionMatrix = (int[][]) result;
-              displayMatrix(solutionMatrix);
-              displayMessage("\n=====================================\n");
-            } else if (result == null) {
-              displayMessage("\nError: Server returned null result");
+            int status = input.readInt();
+            if (status == MatrixProtocol.STATUS_OK) {
+              Object solutionMatrix = MatrixProtocol.readMatrix(input);
+              displayMessage("\nReceived " + MatrixTypes.name(MatrixTypes.typeOf(solutionMatrix)) +
+                  " solution matrix (concurrent sum): " +
+                  MatrixTypes.rows(solutionMatrix) + "x" + MatrixTypes.cols(solutionMatrix));
+              showMatrix(resultView, solutionMatrix);
+            } else if (status == MatrixProtocol.STATUS_DELTA) {
+              MatrixDelta delta = MatrixDelta.read(input);
+              displayMessage("\nServer updated " + delta.size() + " result elements");
+            } else if (status == MatrixProtocol.STATUS_DONE) {
+              displayMessage("\nServer completed request");
+            } else {
+              displayMessage("\nError: Server returned " + input.readUTF());
             }
           }
         } catch (EOFException e) {
           LOGGER.log(Level.INFO, "Server closed the connection");
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
           if (isConnected) {
             LOGGER.log(Level.SEVERE, "Error receiving result from server", e);
             displayMessage("\nError receiving result: " + e.getMessage());
@@ -9,6 +9,16 @@ public class ConnectionConfig {
   public static final String SERVER_ADDRESS = "localhost";
   public static final int SOCKET_TIMEOUT = 10000; // 10 seconds
   public static final int MAX_MATRIX_SIZE = 1000; // Maximum matrix dimension
+  // Unix domain socket for same-host clients; unset means TCP only
+  public static final String SOCKET_PATH = System.getProperty("matrix.socket.path");
+  public static final long REGISTRY_MEMORY_QUOTA = 64L * 1024 * 1024; // Stored matrix bytes per client
+  public static final long REGISTRY_SPILL_QUOTA = 256L * 1024 * 1024; // Spilled matrix bytes per client
+  public static final int REGISTRY_MAX_ENTRIES = 256; // Stored matrices per client
+  // Parent of each server's spill directory
+  public static final String SPILL_ROOT = System.getProperty("matrix.spill.root",
+      System.getProperty("java.io.tmpdir"));
+  public static final int REDUCE_BATCH_SIZE = 4; // Operands buffered per reduction step
+  public static final int MAX_DISPLAY_ELEMENTS = 100; // Larger results are not printed by the server
 
   private ConnectionConfig() {
     // Private constructor to prevent instantiation
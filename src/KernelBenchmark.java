@@ -0,0 +1,108 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Compares the four processConcurrently kernels with a plain nested loop
+         on the calling thread, one element type at a time. Both sum into a
+         preallocated result, so the figures show what splitting the matrix
+         into quadrants on the worker pool gains (or costs) at a given size
+         and core count, without the server or the wire format.
+
+         Usage: java KernelBenchmark [size] [repetitions]
+*/
+public class KernelBenchmark {
+  private static final int WARMUP_ROUNDS = 3;
+
+  public static void main(String[] args) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+    System.out.println("Size " + size + "x" + size + ", " + Runtime.getRuntime().availableProcessors()
+        + " processors, mean of " + repetitions + " additions");
+    for (int type = MatrixTypes.TYPE_INT; type <= MatrixTypes.TYPE_DOUBLE; type++) {
+      Object matrix1 = MatrixTypes.newMatrix(type, size, size);
+      Object matrix2 = MatrixTypes.newMatrix(type, size, size);
+      Object result = MatrixTypes.newMatrix(type, size, size);
+
+      long concurrent = 0;
+      long sequential = 0;
+      for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+        long start = System.nanoTime();
+        for (int k = 0; k < repetitions; k++) {
+          MatrixProcessor.processTyped(matrix1, matrix2, result);
+        }
+        concurrent = (System.nanoTime() - start) / repetitions;
+
+        start = System.nanoTime();
+        for (int k = 0; k < repetitions; k++) {
+          addSequentially(matrix1, matrix2, result);
+        }
+        sequential = (System.nanoTime() - start) / repetitions;
+      }
+
+      System.out.printf("%-7s concurrent %8.1f us   nested loop %8.1f us   speedup %5.2fx%n",
+          MatrixTypes.name(type), concurrent / 1e3, sequential / 1e3, (double) sequential / concurrent);
+    }
+  }
+
+  // The loop each kernel runs per quadrant, over the whole matrix on this thread
+  private static void addSequentially(Object matrix1, Object matrix2, Object result) {
+    switch (MatrixTypes.typeOf(result)) {
+      case MatrixTypes.TYPE_INT: {
+        int[][] a = (int[][]) matrix1;
+        int[][] b = (int[][]) matrix2;
+        int[][] sum = (int[][]) result;
+        for (int i = 0; i < sum.length; i++) {
+          int[] row1 = a[i];
+          int[] row2 = b[i];
+          int[] resultRow = sum[i];
+          for (int j = 0; j < resultRow.length; j++) {
+            resultRow[j] = row1[j] + row2[j];
+          }
+        }
+        break;
+      }
+      case MatrixTypes.TYPE_LONG: {
+        long[][] a = (long[][]) matrix1;
+        long[][] b = (long[][]) matrix2;
+        long[][] sum = (long[][]) result;
+        for (int i = 0; i < sum.length; i++) {
+          long[] row1 = a[i];
+          long[] row2 = b[i];
+          long[] resultRow = sum[i];
+          for (int j = 0; j < resultRow.length; j++) {
+            resultRow[j] = row1[j] + row2[j];
+          }
+        }
+        break;
+      }
+      case MatrixTypes.TYPE_FLOAT: {
+        float[][] a = (float[][]) matrix1;
+        float[][] b = (float[][]) matrix2;
+        float[][] sum = (float[][]) result;
+        for (int i = 0; i < sum.length; i++) {
+          float[] row1 = a[i];
+          float[] row2 = b[i];
+          float[] resultRow = sum[i];
+          for (int j = 0; j < resultRow.length; j++) {
+            resultRow[j] = row1[j] + row2[j];
+          }
+        }
+        break;
+      }
+      default: {
+        double[][] a = (double[][]) matrix1;
+        double[][] b = (double[][]) matrix2;
+        double[][] sum = (double[][]) result;
+        for (int i = 0; i < sum.length; i++) {
+          double[] row1 = a[i];
+          double[] row2 = b[i];
+          double[] resultRow = sum[i];
+          for (int j = 0; j < resultRow.length; j++) {
+            resultRow[j] = row1[j] + row2[j];
+          }
+        }
+        break;
+      }
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: In-process server for the measurement tools. Starts a Server on a free
+         port, waits until it accepts connections, and opens client sessions
+         that speak the wire protocol with pooled buffers, so the tools measure
+         the server rather than their own allocation.
+*/
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class LocalServer implements AutoCloseable {
+  private static final long START_TIMEOUT_MILLIS = 10000;
+
+  private final Server server;
+  private final int port;
+
+  private LocalServer(Server server, int port) {
+    this.server = server;
+    this.port = port;
+  }
+
+  public static LocalServer start() throws IOException, InterruptedException {
+    Server server = new Server(0);
+    Thread serverThread = new Thread(server::startServer, "local-server");
+    serverThread.setDaemon(true);
+    serverThread.start();
+    try {
+      return new LocalServer(server, server.awaitStart(START_TIMEOUT_MILLIS));
+    } catch (IOException | InterruptedException e) {
+      server.stopServer();
+      throw e;
+    }
+  }
+
+  public Session openTcp() throws IOException {
+    return new Session(Transport.connectTcp(ConnectionConfig.SERVER_ADDRESS, port));
+  }
+
+  // Fails unless matrix.socket.path was set before the server started
+  public Session openUnix() throws IOException {
+    if (Transport.unixSocketPath() == null) {
+      throw new IOException("No unix socket configured (matrix.socket.path)");
+    }
+    return new Session(Transport.connectUnix(Transport.unixSocketPath()));
+  }
+
+  @Override
+  public void close() {
+    server.stopServer();
+  }
+
+  /*
+   * One client connection. Replies are decoded into the session's arena and
+   * handed straight back, so a steady stream of requests does not allocate on
+   * the client side either.
+   */
+  public static class Session implements AutoCloseable {
+    private final Transport transport;
+    private final BufferPool.Arena arena;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+
+    private Session(Transport transport) throws IOException {
+      this.transport = transport;
+      this.arena = BufferPool.shared().newArena("session " + transport.getDescription());
+      this.out = new DataOutputStream(new BufferedOutputStream(transport.getOutputStream()));
+      this.in = new DataInputStream(new BufferedInputStream(transport.getInputStream()));
+    }
+
+    public Transport getTransport() {
+      return transport;
+    }
+
+    public void add(Object matrix1, Object matrix2) throws IOException {
+      byte[] buffer = arena.ioBuffer(0);
+      out.writeInt(MatrixProtocol.OP_ADD);
+      MatrixProtocol.writeOperand(out, matrix1, buffer);
+      MatrixProtocol.writeOperand(out, matrix2, buffer);
+      out.writeUTF("");
+      out.flush();
+      readResult();
+    }
+
+    public void put(String name, Object matrix) throws IOException {
+      out.writeInt(MatrixProtocol.OP_PUT);
+      out.writeUTF(name);
+      MatrixProtocol.writeMatrix(out, matrix, arena.ioBuffer(0));
+      out.flush();
+      expect(MatrixProtocol.STATUS_DONE);
+    }
+
+    public void get(String name) throws IOException {
+      out.writeInt(MatrixProtocol.OP_GET);
+      out.writeUTF(name);
+      out.flush();
+      readResult();
+    }
+
+    private void readResult() throws IOException {
+      expect(MatrixProtocol.STATUS_OK);
+      arena.releaseMatrix(MatrixProtocol.readMatrix(in, arena));
+    }
+
+    private void expect(int expected) throws IOException {
+      int status = in.readInt();
+      if (status == MatrixProtocol.STATUS_ERROR) {
+        throw new IOException("Server error: " + in.readUTF());
+      }
+      if (status != expected) {
+        throw new IOException("Server replied with status " + status);
+      }
+    }
+
+    // Ends the session the way the client does, so the server logs a clean close
+    @Override
+    public void close() throws IOException {
+      try {
+        out.writeInt(MatrixProtocol.OP_TERMINATE);
+        out.flush();
+      } finally {
+        arena.close();
+        transport.close();
+      }
+    }
+  }
+}
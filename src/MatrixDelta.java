@@ -0,0 +1,270 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: A change to part of a matrix, given either as individual cells or as a
+         range of whole rows. Used to patch stored matrices in place and to send
+         back only the part of a result that changed, so the cost of an update is
+         proportional to the size of the change rather than the matrix.
+*/
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MatrixDelta {
+  // Delta kinds on the wire
+  public static final int CELLS = 0; // count, then (row, col, value) triples
+  public static final int ROWS = 1; // startRow, rowCount, cols, then row values
+
+  private final int kind;
+  private final int[] rows;
+  private final int[] cols;
+  private final int[] values;
+  private final int startRow;
+  private final int[][] rowValues;
+  // Values before the change, kept by differencesFrom so differences can be taken exactly
+  private MatrixDelta previous;
+
+  private MatrixDelta(int kind, int[] rows, int[] cols, int[] values, int startRow, int[][] rowValues) {
+    this.kind = kind;
+    this.rows = rows;
+    this.cols = cols;
+    this.values = values;
+    this.startRow = startRow;
+    this.rowValues = rowValues;
+  }
+
+  public static MatrixDelta ofCells(int[] rows, int[] cols, int[] values) {
+    if (rows.length != cols.length || rows.length != values.length) {
+      throw new IllegalArgumentException("Cell delta arrays must have the same length");
+    }
+    return new MatrixDelta(CELLS, rows, cols, values, 0, null);
+  }
+
+  public static MatrixDelta ofRows(int startRow, int[][] rowValues) {
+    return new MatrixDelta(ROWS, null, null, null, startRow, rowValues);
+  }
+
+  public void validateAgainst(int[][] matrix) {
+    int matrixRows = matrix.length;
+    int matrixCols = matrix[0].length;
+    if (kind == CELLS) {
+      for (int i = 0; i < rows.length; i++) {
+        if (rows[i] < 0 || rows[i] >= matrixRows || cols[i] < 0 || cols[i] >= matrixCols) {
+          throw new IllegalArgumentException("Delta cell (" + rows[i] + ", " + cols[i] + ") is outside the "
+              + matrixRows + "x" + matrixCols + " matrix");
+        }
+      }
+    } else {
+      if (startRow < 0 || startRow > matrixRows - rowValues.length) {
+        throw new IllegalArgumentException("Delta rows " + startRow + "-" + (startRow + rowValues.length - 1)
+            + " are outside the " + matrixRows + "x" + matrixCols + " matrix");
+      }
+      if (rowValues.length > 0 && rowValues[0].length != matrixCols) {
+        throw new IllegalArgumentException("Delta rows must have " + matrixCols + " columns");
+      }
+    }
+  }
+
+  /*
+   * The differences (new - old) this delta would make to the matrix, without
+   * changing it. A cell listed more than once ends with its last value, so it
+   * appears once, with the difference to its final value.
+   */
+  public MatrixDelta differencesFrom(int[][] matrix) {
+    if (kind == CELLS) {
+      Map<Long, Integer> indexOf = new HashMap<>();
+      int[] cellRows = new int[values.length];
+      int[] cellCols = new int[values.length];
+      int[] diffs = new int[values.length];
+      int[] old = new int[values.length];
+      int count = 0;
+      for (int i = 0; i < values.length; i++) {
+        Integer index = indexOf.putIfAbsent(((long) rows[i] << 32) | cols[i], count);
+        if (index == null) {
+          index = count++;
+          cellRows[index] = rows[i];
+          cellCols[index] = cols[i];
+          old[index] = matrix[rows[i]][cols[i]];
+        }
+        diffs[index] = values[i] - old[index];
+      }
+      MatrixDelta diff = new MatrixDelta(CELLS, Arrays.copyOf(cellRows, count), Arrays.copyOf(cellCols, count),
+          Arrays.copyOf(diffs, count), 0, null);
+      diff.previous = new MatrixDelta(CELLS, diff.rows, diff.cols, Arrays.copyOf(old, count), 0, null);
+      return diff;
+    }
+
+    int[][] diffs = new int[rowValues.length][];
+    for (int i = 0; i < rowValues.length; i++) {
+      int[] row = matrix[startRow + i];
+      int[] newRow = rowValues[i];
+      int[] diffRow = new int[newRow.length];
+      for (int j = 0; j < newRow.length; j++) {
+        diffRow[j] = newRow[j] - row[j];
+      }
+      diffs[i] = diffRow;
+    }
+    MatrixDelta diff = new MatrixDelta(ROWS, null, null, null, startRow, diffs);
+    diff.previous = snapshotOf(matrix);
+    return diff;
+  }
+
+  // Writes the new values into the matrix
+  public void applyTo(int[][] matrix) {
+    if (kind == CELLS) {
+      for (int i = 0; i < values.length; i++) {
+        matrix[rows[i]][cols[i]] = values[i];
+      }
+      return;
+    }
+
+    for (int i = 0; i < rowValues.length; i++) {
+      System.arraycopy(rowValues[i], 0, matrix[startRow + i], 0, rowValues[i].length);
+    }
+  }
+
+  /*
+   * The methods below patch a sum that includes the changed matrix the given
+   * number of times, and are called on the result of differencesFrom. The
+   * check methods throw ArithmeticException if a patched element would not
+   * fit, and change nothing, so a caller can check every sum before patching
+   * any of them. addTo wraps like the addition that computed the sum.
+   */
+  public void checkAddTo(int[][] matrix, long times) {
+    forEachDifference((row, col, difference) -> {
+      long val = addExact(matrix[row][col], difference, times, row, col);
+      if (val != (int) val) {
+        throw new ArithmeticException("Sum overflows int at (" + row + ", " + col + "): " + val);
+      }
+    });
+  }
+
+  public void checkAddTo(long[][] matrix, long times) {
+    forEachDifference((row, col, difference) -> addExact(matrix[row][col], difference, times, row, col));
+  }
+
+  public void addTo(int[][] matrix, long times) {
+    forEachDifference((row, col, difference) -> matrix[row][col] += (int) (difference * times));
+  }
+
+  public void addTo(long[][] matrix, long times) {
+    forEachDifference((row, col, difference) -> matrix[row][col] += difference * times);
+  }
+
+  private static long addExact(long val, long difference, long times, int row, int col) {
+    try {
+      return Math.addExact(val, Math.multiplyExact(difference, times));
+    } catch (ArithmeticException e) {
+      throw new ArithmeticException("Sum overflows long at (" + row + ", " + col + ")");
+    }
+  }
+
+  // Visits each difference widened to long, so one that wrapped as int is exact again
+  private void forEachDifference(DifferenceVisitor visitor) {
+    if (kind == CELLS) {
+      for (int i = 0; i < values.length; i++) {
+        int old = previous.values[i];
+        visitor.visit(rows[i], cols[i], (long) (old + values[i]) - old);
+      }
+      return;
+    }
+
+    for (int i = 0; i < rowValues.length; i++) {
+      int[] diffRow = rowValues[i];
+      int[] oldRow = previous.rowValues[i];
+      for (int j = 0; j < diffRow.length; j++) {
+        visitor.visit(startRow + i, j, (long) (oldRow[j] + diffRow[j]) - oldRow[j]);
+      }
+    }
+  }
+
+  // Current values of the matrix at the cells or rows this delta covers
+  public MatrixDelta snapshotOf(int[][] matrix) {
+    if (kind == CELLS) {
+      int[] current = new int[rows.length];
+      for (int i = 0; i < rows.length; i++) {
+        current[i] = matrix[rows[i]][cols[i]];
+      }
+      return new MatrixDelta(CELLS, rows, cols, current, 0, null);
+    }
+
+    int[][] current = new int[rowValues.length][];
+    for (int i = 0; i < rowValues.length; i++) {
+      current[i] = matrix[startRow + i].clone();
+    }
+    return new MatrixDelta(ROWS, null, null, null, startRow, current);
+  }
+
+  public int size() {
+    return kind == CELLS ? values.length : rowValues.length * (rowValues.length > 0 ? rowValues[0].length : 0);
+  }
+
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(kind);
+    if (kind == CELLS) {
+      out.writeInt(values.length);
+      for (int i = 0; i < values.length; i++) {
+        out.writeInt(rows[i]);
+        out.writeInt(cols[i]);
+        out.writeInt(values[i]);
+      }
+      return;
+    }
+
+    int rowCount = rowValues.length;
+    int colCount = rowCount > 0 ? rowValues[0].length : 0;
+    out.writeInt(startRow);
+    out.writeInt(rowCount);
+    out.writeInt(colCount);
+    for (int[] row : rowValues) {
+      for (int val : row) {
+        out.writeInt(val);
+      }
+    }
+  }
+
+  public static MatrixDelta read(DataInputStream in) throws IOException {
+    int kind = in.readInt();
+    int max = ConnectionConfig.MAX_MATRIX_SIZE;
+    if (kind == CELLS) {
+      int count = in.readInt();
+      if (count < 0 || count > max * max) {
+        throw new IOException("Invalid delta cell count: " + count);
+      }
+      int[] rows = new int[count];
+      int[] cols = new int[count];
+      int[] values = new int[count];
+      for (int i = 0; i < count; i++) {
+        rows[i] = in.readInt();
+        cols[i] = in.readInt();
+        values[i] = in.readInt();
+      }
+      return ofCells(rows, cols, values);
+    }
+    if (kind == ROWS) {
+      int startRow = in.readInt();
+      int rowCount = in.readInt();
+      int colCount = in.readInt();
+      // An empty range is written with no columns
+      if (rowCount < 0 || rowCount > max || colCount < 0 || colCount > max
+          || (colCount == 0) != (rowCount == 0)) {
+        throw new IOException("Invalid delta row range: rows=" + rowCount + ", cols=" + colCount);
+      }
+      int[][] rowValues = new int[rowCount][colCount];
+      for (int i = 0; i < rowCount; i++) {
+        for (int j = 0; j < colCount; j++) {
+          rowValues[i][j] = in.readInt();
+        }
+      }
+      return ofRows(startRow, rowValues);
+    }
+    throw new IOException("Unknown delta kind " + kind);
+  }
+
+  private interface DifferenceVisitor {
+    void visit(int row, int col, long difference);
+  }
+}
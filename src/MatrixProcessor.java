@@ -1,4 +1,3 @@
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -7,91 +6,281 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class MatrixProcessor {
+  private static final int NUM_THREADS = 4;
+
+  // Shared across requests so threads are not created and torn down per matrix
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(NUM_THREADS, r -> {
+    Thread thread = new Thread(r, "matrix-worker");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   public static int[][] processConcurrently(int[][] matrix1, int[][] matrix2)
       throws InterruptedException, ExecutionException {
     if (matrix1.length != matrix2.length || matrix1[0].length != matrix2[0].length) {
       throw new IllegalArgumentException("Matrices must have the same dimensions");
     }
+    return processConcurrently(matrix1, matrix2, new int[matrix1.length][matrix1[0].length]);
+  }
+
+  // Sums into a caller supplied result, which lets callers reuse pooled buffers
+  public static int[][] processConcurrently(int[][] matrix1, int[][] matrix2, int[][] result)
+      throws InterruptedException, ExecutionException {
+    checkDimensions(matrix1.length, matrix1[0].length, matrix2.length, matrix2[0].length,
+        result.length, result[0].length);
+    forEachQuadrant(result.length, result[0].length, (startRow, startCol, endRow, endCol) -> {
+      for (int i = startRow; i < endRow; i++) {
+        int[] row1 = matrix1[i];
+        int[] row2 = matrix2[i];
+        int[] resultRow = result[i];
+        for (int j = startCol; j < endCol; j++) {
+          resultRow[j] = row1[j] + row2[j];
+        }
+      }
+    });
+    return result;
+  }
 
-    int rows = matrix1.length;
-    int cols = matrix1[0].length;
-    int[][] result = new int[rows][cols];
+  public static long[][] processConcurrently(long[][] matrix1, long[][] matrix2, long[][] result)
+      throws InterruptedException, ExecutionException {
+    checkDimensions(matrix1.length, matrix1[0].length, matrix2.length, matrix2[0].length,
+        result.length, result[0].length);
+    forEachQuadrant(result.length, result[0].length, (startRow, startCol, endRow, endCol) -> {
+      for (int i = startRow; i < endRow; i++) {
+        long[] row1 = matrix1[i];
+        long[] row2 = matrix2[i];
+        long[] resultRow = result[i];
+        for (int j = startCol; j < endCol; j++) {
+          resultRow[j] = row1[j] + row2[j];
+        }
+      }
+    });
+    return result;
+  }
 
+  public static float[][] processConcurrently(float[][] matrix1, float[][] matrix2, float[][] result)
+      throws InterruptedException, ExecutionException {
+    checkDimensions(matrix1.length, matrix1[0].length, matrix2.length, matrix2[0].length,
+        result.length, result[0].length);
+    forEachQuadrant(result.length, result[0].length, (startRow, startCol, endRow, endCol) -> {
+      for (int i = startRow; i < endRow; i++) {
+        float[] row1 = matrix1[i];
+        float[] row2 = matrix2[i];
+        float[] resultRow = result[i];
+        for (int j = startCol; j < endCol; j++) {
+          resultRow[j] = row1[j] + row2[j];
+        }
+      }
+    });
+    return result;
+  }
+
+  public static double[][] processConcurrently(double[][] matrix1, double[][] matrix2, double[][] result)
+      throws InterruptedException, ExecutionException {
+    checkDimensions(matrix1.length, matrix1[0].length, matrix2.length, matrix2[0].length,
+        result.length, result[0].length);
+    forEachQuadrant(result.length, result[0].length, (startRow, startCol, endRow, endCol) -> {
+      for (int i = startRow; i < endRow; i++) {
+        double[] row1 = matrix1[i];
+        double[] row2 = matrix2[i];
+        double[] resultRow = result[i];
+        for (int j = startCol; j < endCol; j++) {
+          resultRow[j] = row1[j] + row2[j];
+        }
+      }
+    });
+    return result;
+  }
+
+  /*
+   * Sums operands of any element type into a result of their widened type
+   * (see MatrixTypes). Dispatches once per request to the primitive kernel
+   * above, so elements are never boxed.
+   */
+  public static Object processTyped(Object matrix1, Object matrix2, Object result)
+      throws InterruptedException, ExecutionException {
+    int type = MatrixTypes.typeOf(result);
+    if (MatrixTypes.widen(MatrixTypes.typeOf(matrix1), MatrixTypes.typeOf(matrix2)) != type) {
+      throw new IllegalArgumentException("Result must have the widened type of the operands");
+    }
+    Object operand1 = MatrixTypes.convert(matrix1, type);
+    Object operand2 = MatrixTypes.convert(matrix2, type);
+
+    switch (type) {
+      case MatrixTypes.TYPE_INT:
+        return processConcurrently((int[][]) operand1, (int[][]) operand2, (int[][]) result);
+      case MatrixTypes.TYPE_LONG:
+        return processConcurrently((long[][]) operand1, (long[][]) operand2, (long[][]) result);
+      case MatrixTypes.TYPE_FLOAT:
+        return processConcurrently((float[][]) operand1, (float[][]) operand2, (float[][]) result);
+      default:
+        return processConcurrently((double[][]) operand1, (double[][]) operand2, (double[][]) result);
+    }
+  }
+
+  private static void checkDimensions(int rows1, int cols1, int rows2, int cols2, int resultRows, int resultCols) {
+    if (rows1 != rows2 || cols1 != cols2) {
+      throw new IllegalArgumentException("Matrices must have the same dimensions");
+    }
+    if (resultRows != rows1 || resultCols != cols1) {
+      throw new IllegalArgumentException("Result must have the same dimensions as the operands");
+    }
+  }
+
+  // Runs the kernel over each quadrant in parallel; quadrants never overlap
+  private static void forEachQuadrant(int rows, int cols, RegionKernel kernel)
+      throws InterruptedException, ExecutionException {
     // Calculate section sizes
-    int numThreads = 4; // We'll still use 4 threads
     int rowsPerSection = Math.max(1, rows / 2);
     int colsPerSection = Math.max(1, cols / 2);
 
-    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-    List<Future<QuadrantResult>> futures = new ArrayList<>();
+    List<Future<?>> futures = new ArrayList<>(NUM_THREADS + 2);
 
     // Process sections
     for (int i = 0; i < rows; i += rowsPerSection) {
       for (int j = 0; j < cols; j += colsPerSection) {
+        int startRow = i;
+        int startCol = j;
         int endRow = Math.min(i + rowsPerSection, rows);
         int endCol = Math.min(j + colsPerSection, cols);
-        futures.add(executor.submit(new QuadrantProcessor(matrix1, matrix2, i, j, endRow, endCol)));
+        futures.add(EXECUTOR.submit(() -> kernel.process(startRow, startCol, endRow, endCol)));
       }
     }
 
-    // Collect results
-    for (Future<QuadrantResult> future : futures) {
-      QuadrantResult qResult = future.get();
-      copyQuadrantToResult(result, qResult);
+    // Wait for all quadrants to finish
+    for (Future<?> future : futures) {
+      future.get();
     }
-
-    executor.shutdown();
-    return result;
   }
 
-  private static void copyQuadrantToResult(int[][] result, QuadrantResult qResult) {
-    for (int i = qResult.startRow; i < qResult.endRow; i++) {
-      for (int j = qResult.startCol; j < qResult.endCol; j++) {
-        result[i][j] = qResult.values[i - qResult.startRow][j - qResult.startCol];
+  /*
+   * Adds the first count operands, int or long, into the accumulator. Rows
+   * are split into bands, one task per thread, and each task folds every
+   * operand into its band in a single pass, so no intermediate sums are
+   * allocated. When checked, a sum that overflows long throws
+   * ArithmeticException; otherwise it wraps.
+   */
+  public static void reduceConcurrently(Object[] operands, int count, long[][] accumulator, boolean checked)
+      throws InterruptedException, ExecutionException {
+    forEachBand(accumulator.length, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        long[] accRow = accumulator[i];
+        for (int k = 0; k < count; k++) {
+          if (operands[k] instanceof int[][]) {
+            int[] row = ((int[][]) operands[k])[i];
+            for (int j = 0; j < accRow.length; j++) {
+              accRow[j] = checked ? Math.addExact(accRow[j], row[j]) : accRow[j] + row[j];
+            }
+          } else {
+            long[] row = ((long[][]) operands[k])[i];
+            for (int j = 0; j < accRow.length; j++) {
+              accRow[j] = checked ? Math.addExact(accRow[j], row[j]) : accRow[j] + row[j];
+            }
+          }
+        }
       }
-    }
+    });
   }
 
-  private static class QuadrantProcessor implements Callable<QuadrantResult> {
-    private final int[][] matrix1;
-    private final int[][] matrix2;
-    private final int startRow, startCol, endRow, endCol;
+  // As above for operands of any element type, summed in double
+  public static void reduceConcurrently(Object[] operands, int count, double[][] accumulator)
+      throws InterruptedException, ExecutionException {
+    forEachBand(accumulator.length, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        double[] accRow = accumulator[i];
+        for (int k = 0; k < count; k++) {
+          Object operand = operands[k];
+          if (operand instanceof int[][]) {
+            int[] row = ((int[][]) operand)[i];
+            for (int j = 0; j < accRow.length; j++) {
+              accRow[j] += row[j];
+            }
+          } else if (operand instanceof long[][]) {
+            long[] row = ((long[][]) operand)[i];
+            for (int j = 0; j < accRow.length; j++) {
+              accRow[j] += row[j];
+            }
+          } else if (operand instanceof float[][]) {
+            float[] row = ((float[][]) operand)[i];
+            for (int j = 0; j < accRow.length; j++) {
+              accRow[j] += row[j];
+            }
+          } else {
+            double[] row = ((double[][]) operand)[i];
+            for (int j = 0; j < accRow.length; j++) {
+              accRow[j] += row[j];
+            }
+          }
+        }
+      }
+    });
+  }
 
-    QuadrantProcessor(int[][] matrix1, int[][] matrix2, int startRow, int startCol, int endRow, int endCol) {
-      this.matrix1 = matrix1;
-      this.matrix2 = matrix2;
-      this.startRow = startRow;
-      this.startCol = startCol;
-      this.endRow = endRow;
-      this.endCol = endCol;
+  // Runs the kernel over bands of rows in parallel, rethrowing an overflow as it was thrown
+  private static void forEachBand(int rows, BandKernel kernel) throws InterruptedException, ExecutionException {
+    List<Future<?>> futures = new ArrayList<>(NUM_THREADS);
+    int rowsPerBand = Math.max(1, (rows + NUM_THREADS - 1) / NUM_THREADS);
+    for (int start = 0; start < rows; start += rowsPerBand) {
+      int startRow = start;
+      int endRow = Math.min(start + rowsPerBand, rows);
+      futures.add(EXECUTOR.submit(() -> kernel.process(startRow, endRow)));
     }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ArithmeticException) {
+        throw (ArithmeticException) e.getCause();
+      }
+      throw e;
+    }
+  }
 
-    @Override
-    public QuadrantResult call() {
-      int rows = endRow - startRow;
-      int cols = endCol - startCol;
-      int[][] result = new int[rows][cols];
-
-      for (int i = 0; i < rows; i++) {
-        for (int j = 0; j < cols; j++) {
-          result[i][j] = matrix1[startRow + i][startCol + j] + matrix2[startRow + i][startCol + j];
+  // Copies a widened sum back to int, failing if any element does not fit
+  public static void narrowExact(long[][] source, int[][] target) {
+    for (int i = 0; i < source.length; i++) {
+      long[] sourceRow = source[i];
+      int[] targetRow = target[i];
+      for (int j = 0; j < sourceRow.length; j++) {
+        long val = sourceRow[j];
+        if (val != (int) val) {
+          throw new ArithmeticException("Sum overflows int at (" + i + ", " + j + "): " + val);
         }
+        targetRow[j] = (int) val;
       }
-
-      return new QuadrantResult(result, startRow, startCol, endRow, endCol);
     }
   }
 
-  private static class QuadrantResult {
-    int[][] values;
-    int startRow, startCol, endRow, endCol;
+  // Copies a long sum back to int, keeping the low 32 bits as int addition would
+  public static void narrowWrapping(long[][] source, int[][] target) {
+    for (int i = 0; i < source.length; i++) {
+      long[] sourceRow = source[i];
+      int[] targetRow = target[i];
+      for (int j = 0; j < sourceRow.length; j++) {
+        targetRow[j] = (int) sourceRow[j];
+      }
+    }
+  }
 
-    QuadrantResult(int[][] values, int startRow, int startCol, int endRow, int endCol) {
-      this.values = values;
-      this.startRow = startRow;
-      this.startCol = startCol;
-      this.endRow = endRow;
-      this.endCol = endCol;
+  // Rounds a double sum to float, for sums whose operands were all float
+  public static void narrow(double[][] source, float[][] target) {
+    for (int i = 0; i < source.length; i++) {
+      double[] sourceRow = source[i];
+      float[] targetRow = target[i];
+      for (int j = 0; j < sourceRow.length; j++) {
+        targetRow[j] = (float) sourceRow[j];
+      }
     }
   }
+
+  // One element type's loop over a rectangular region of the result
+  private interface RegionKernel {
+    void process(int startRow, int startCol, int endRow, int endCol);
+  }
+
+  // A reduction's loop over a band of whole rows
+  private interface BandKernel {
+    void process(int startRow, int endRow);
+  }
 }
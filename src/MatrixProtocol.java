@@ -0,0 +1,260 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Wire format shared by the client and server. Every request starts with
+         an operation code and every reply with a status code. Matrices are sent
+         as their element type (see MatrixTypes), dimensions and raw elements,
+         which lets the server decode matrices of every type straight into
+         pooled buffers instead of deserializing new arrays for each request.
+
+         OP_ADD     operand, operand, result handle ("" to return the result)
+         OP_PUT     handle, matrix
+         OP_GET     handle
+         OP_DELETE  handle
+         OP_UPDATE  handle, delta, handle of a sum to report ("" for none)
+         OP_REDUCE  mode, operands ending with OPERAND_END, result handle
+*/
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class MatrixProtocol {
+  // Operation codes
+  public static final int OP_TERMINATE = 0;
+  public static final int OP_ADD = 1;
+  public static final int OP_PUT = 2;
+  public static final int OP_GET = 3;
+  public static final int OP_DELETE = 4;
+  public static final int OP_UPDATE = 5;
+  public static final int OP_REDUCE = 6;
+
+  // Reduction modes for integer sums: wrap on overflow, fail on overflow, or return int sums as long
+  public static final int REDUCE_WRAP = 0;
+  public static final int REDUCE_CHECKED = 1;
+  public static final int REDUCE_WIDEN = 2;
+
+  // Operand kinds: a matrix sent with the request or the name of a stored one
+  public static final int OPERAND_INLINE = 0;
+  public static final int OPERAND_HANDLE = 1;
+  public static final int OPERAND_END = -1; // Ends a streamed operand list
+
+  // Reply status codes
+  public static final int STATUS_OK = 0; // Followed by a matrix
+  public static final int STATUS_ERROR = 1; // Followed by a message
+  public static final int STATUS_DONE = 2; // No payload
+  public static final int STATUS_DELTA = 3; // Followed by a delta
+
+  private MatrixProtocol() {
+    // Private constructor to prevent instantiation
+  }
+
+  public static void writeMatrix(DataOutputStream out, int[][] matrix, byte[] buffer) throws IOException {
+    int rows = matrix.length;
+    int cols = matrix[0].length;
+    out.writeInt(MatrixTypes.TYPE_INT);
+    out.writeInt(rows);
+    out.writeInt(cols);
+
+    int pos = 0;
+    for (int i = 0; i < rows; i++) {
+      int[] row = matrix[i];
+      for (int j = 0; j < cols; j++) {
+        if (pos + 4 > buffer.length) {
+          out.write(buffer, 0, pos);
+          pos = 0;
+        }
+        int val = row[j];
+        buffer[pos++] = (byte) (val >>> 24);
+        buffer[pos++] = (byte) (val >>> 16);
+        buffer[pos++] = (byte) (val >>> 8);
+        buffer[pos++] = (byte) val;
+      }
+    }
+    out.write(buffer, 0, pos);
+  }
+
+  public static void writeMatrix(DataOutputStream out, Object matrix, byte[] buffer) throws IOException {
+    int type = MatrixTypes.typeOf(matrix);
+    if (type == MatrixTypes.TYPE_INT) {
+      writeMatrix(out, (int[][]) matrix, buffer);
+      return;
+    }
+
+    out.writeInt(type);
+    out.writeInt(MatrixTypes.rows(matrix));
+    out.writeInt(MatrixTypes.cols(matrix));
+    int pos = 0;
+    if (type == MatrixTypes.TYPE_LONG) {
+      for (long[] row : (long[][]) matrix) {
+        for (long val : row) {
+          if (pos + 8 > buffer.length) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+          }
+          pos = putLong(buffer, pos, val);
+        }
+      }
+    } else if (type == MatrixTypes.TYPE_FLOAT) {
+      for (float[] row : (float[][]) matrix) {
+        for (float val : row) {
+          if (pos + 4 > buffer.length) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+          }
+          pos = putInt(buffer, pos, Float.floatToRawIntBits(val));
+        }
+      }
+    } else {
+      for (double[] row : (double[][]) matrix) {
+        for (double val : row) {
+          if (pos + 8 > buffer.length) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+          }
+          pos = putLong(buffer, pos, Double.doubleToRawLongBits(val));
+        }
+      }
+    }
+    out.write(buffer, 0, pos);
+  }
+
+  public static void writeOperand(DataOutputStream out, Object matrix, byte[] buffer) throws IOException {
+    out.writeInt(OPERAND_INLINE);
+    writeMatrix(out, matrix, buffer);
+  }
+
+  public static void writeOperand(DataOutputStream out, String handle) throws IOException {
+    out.writeInt(OPERAND_HANDLE);
+    out.writeUTF(handle);
+  }
+
+  // Decodes into a matrix from the arena, a row at a time through its I/O buffer
+  public static Object readMatrix(DataInputStream in, BufferPool.Arena arena) throws IOException {
+    int type = in.readInt();
+    int rows = in.readInt();
+    int cols = in.readInt();
+    validateDimensions(rows, cols);
+    if (type < MatrixTypes.TYPE_INT || type > MatrixTypes.TYPE_DOUBLE) {
+      throw new IOException("Unknown matrix type " + type);
+    }
+
+    Object matrix = arena.acquireMatrix(type, rows, cols);
+    int rowBytes = cols * MatrixTypes.bytesPerElement(type);
+    byte[] buffer = arena.ioBuffer(rowBytes);
+    for (int i = 0; i < rows; i++) {
+      in.readFully(buffer, 0, rowBytes);
+      switch (type) {
+        case MatrixTypes.TYPE_INT: {
+          int[] row = ((int[][]) matrix)[i];
+          for (int j = 0, pos = 0; j < cols; j++, pos += 4) {
+            row[j] = getInt(buffer, pos);
+          }
+          break;
+        }
+        case MatrixTypes.TYPE_LONG: {
+          long[] row = ((long[][]) matrix)[i];
+          for (int j = 0, pos = 0; j < cols; j++, pos += 8) {
+            row[j] = getLong(buffer, pos);
+          }
+          break;
+        }
+        case MatrixTypes.TYPE_FLOAT: {
+          float[] row = ((float[][]) matrix)[i];
+          for (int j = 0, pos = 0; j < cols; j++, pos += 4) {
+            row[j] = Float.intBitsToFloat(getInt(buffer, pos));
+          }
+          break;
+        }
+        default: {
+          double[] row = ((double[][]) matrix)[i];
+          for (int j = 0, pos = 0; j < cols; j++, pos += 8) {
+            row[j] = Double.longBitsToDouble(getLong(buffer, pos));
+          }
+          break;
+        }
+      }
+    }
+    return matrix;
+  }
+
+  public static Object readMatrix(DataInputStream in) throws IOException {
+    int type = in.readInt();
+    int rows = in.readInt();
+    int cols = in.readInt();
+    validateDimensions(rows, cols);
+    return readElements(in, type, rows, cols);
+  }
+
+  private static Object readElements(DataInputStream in, int type, int rows, int cols) throws IOException {
+    switch (type) {
+      case MatrixTypes.TYPE_INT: {
+        int[][] matrix = new int[rows][cols];
+        for (int[] row : matrix) {
+          for (int j = 0; j < cols; j++) {
+            row[j] = in.readInt();
+          }
+        }
+        return matrix;
+      }
+      case MatrixTypes.TYPE_LONG: {
+        long[][] matrix = new long[rows][cols];
+        for (long[] row : matrix) {
+          for (int j = 0; j < cols; j++) {
+            row[j] = in.readLong();
+          }
+        }
+        return matrix;
+      }
+      case MatrixTypes.TYPE_FLOAT: {
+        float[][] matrix = new float[rows][cols];
+        for (float[] row : matrix) {
+          for (int j = 0; j < cols; j++) {
+            row[j] = in.readFloat();
+          }
+        }
+        return matrix;
+      }
+      case MatrixTypes.TYPE_DOUBLE: {
+        double[][] matrix = new double[rows][cols];
+        for (double[] row : matrix) {
+          for (int j = 0; j < cols; j++) {
+            row[j] = in.readDouble();
+          }
+        }
+        return matrix;
+      }
+      default:
+        throw new IOException("Unknown matrix type " + type);
+    }
+  }
+
+  // Big-endian, as DataOutputStream writes them
+  private static int putInt(byte[] buffer, int pos, int val) {
+    buffer[pos] = (byte) (val >>> 24);
+    buffer[pos + 1] = (byte) (val >>> 16);
+    buffer[pos + 2] = (byte) (val >>> 8);
+    buffer[pos + 3] = (byte) val;
+    return pos + 4;
+  }
+
+  private static int putLong(byte[] buffer, int pos, long val) {
+    putInt(buffer, pos, (int) (val >>> 32));
+    return putInt(buffer, pos + 4, (int) val);
+  }
+
+  private static int getInt(byte[] buffer, int pos) {
+    return ((buffer[pos] & 0xFF) << 24) | ((buffer[pos + 1] & 0xFF) << 16)
+        | ((buffer[pos + 2] & 0xFF) << 8) | (buffer[pos + 3] & 0xFF);
+  }
+
+  private static long getLong(byte[] buffer, int pos) {
+    return ((long) getInt(buffer, pos) << 32) | (getInt(buffer, pos + 4) & 0xFFFFFFFFL);
+  }
+
+  private static void validateDimensions(int rows, int cols) throws IOException {
+    if (rows <= 0 || cols <= 0 || rows > ConnectionConfig.MAX_MATRIX_SIZE
+        || cols > ConnectionConfig.MAX_MATRIX_SIZE) {
+      throw new IOException("Invalid matrix dimensions: rows=" + rows + ", cols=" + cols);
+    }
+  }
+}
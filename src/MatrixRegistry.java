@@ -0,0 +1,353 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Named matrices stored on the server for one client, so large operands are
+         uploaded once and referenced by handle afterwards. Memory use is capped
+         by a per-client quota; when it is exceeded the least recently used
+         matrices are spilled to files in the server's spill directory and
+         reloaded on next access. Spill files are capped by a second quota, and
+         a put that fits neither is rejected.
+         Stored sums remember the stored operands they were computed from, so
+         a delta applied to an int operand patches every int and long sum
+         derived from it, with the same overflow handling the sum was computed
+         with. An update that would leave a derived sum wrong, because the sum
+         is floating point or a checked sum would overflow, is rejected before
+         anything is changed.
+*/
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class MatrixRegistry implements AutoCloseable {
+  private static final Logger LOGGER = Logger.getLogger(MatrixRegistry.class.getName());
+  private static final int MAX_NAME_LENGTH = 128;
+
+  private final BufferPool.Arena arena;
+  private final Path spillDirectory;
+  private final long memoryQuota;
+  private final long spillQuota;
+  private final int maxEntries;
+  // Access ordered, so iteration starts at the least recently used entry
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final List<Entry> pinned = new ArrayList<>();
+  private long memoryUsed;
+  private long spillUsed;
+
+  public MatrixRegistry(BufferPool.Arena arena, Path spillDirectory, long memoryQuota, long spillQuota,
+      int maxEntries) {
+    this.arena = arena;
+    this.spillDirectory = spillDirectory;
+    this.memoryQuota = memoryQuota;
+    this.spillQuota = spillQuota;
+    this.maxEntries = maxEntries;
+  }
+
+  // Stores a matrix under the given name; the registry takes ownership of it
+  public void put(String name, Object matrix) throws IOException {
+    put(name, matrix, Collections.<String>emptyList(), false);
+  }
+
+  /*
+   * Stores a sum of operands, linking it to those operands that are stored
+   * matrices. Updates to a linked operand are then applied to the sum as well,
+   * failing rather than wrapping if the sum was overflow checked. An operand
+   * replaced by this put is not linked, since its old value is gone.
+   */
+  public void put(String name, Object matrix, List<String> sourceNames, boolean checked) throws IOException {
+    if (name == null || name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+      release(matrix);
+      throw new IllegalArgumentException("Invalid matrix handle: " + name);
+    }
+    Entry entry = new Entry(name, MatrixTypes.typeOf(matrix), MatrixTypes.rows(matrix), MatrixTypes.cols(matrix));
+    Entry previous = entries.get(name);
+    if (previous == null && entries.size() >= maxEntries) {
+      release(matrix);
+      throw new IllegalArgumentException("Matrix registry is full (" + maxEntries + " entries)");
+    }
+    if (!hasRoomFor(entry.bytes(), previous)) {
+      release(matrix);
+      throw new IllegalArgumentException("Matrix registry is full (memory and spill quotas used)");
+    }
+    if (previous != null) {
+      entries.remove(name);
+      discard(previous);
+    }
+
+    entry.matrix = matrix;
+    entry.checked = checked;
+    for (String sourceName : sourceNames) {
+      Entry source = entries.get(sourceName);
+      if (source != null) {
+        entry.sources.add(source);
+        source.dependents.add(entry);
+      }
+    }
+    entries.put(name, entry);
+    memoryUsed += entry.bytes();
+    spillToQuota();
+  }
+
+  /*
+   * Applies a delta to the named matrix and patches every sum derived from it,
+   * touching only the changed cells. Every derived sum is checked first, so a
+   * rejected update leaves all of them as they were. Returns the differences
+   * that were applied.
+   */
+  public MatrixDelta update(String name, MatrixDelta delta) throws IOException {
+    Entry entry = lookup(name);
+    if (entry.type != MatrixTypes.TYPE_INT) {
+      throw new IllegalArgumentException("Delta updates need an int matrix, " + name + " is "
+          + MatrixTypes.name(entry.type));
+    }
+    int[][] matrix = (int[][]) load(entry);
+    delta.validateAgainst(matrix);
+    MatrixDelta diff = delta.differencesFrom(matrix);
+
+    Map<Entry, Long> sums = new LinkedHashMap<>();
+    collectSums(entry, 1, sums);
+    for (Map.Entry<Entry, Long> sum : sums.entrySet()) {
+      Entry dependent = sum.getKey();
+      if (dependent.type == MatrixTypes.TYPE_FLOAT || dependent.type == MatrixTypes.TYPE_DOUBLE) {
+        // Patching would round differently from summing again
+        throw new IllegalArgumentException("Cannot update " + name + ": " + MatrixTypes.name(dependent.type)
+            + " sum " + dependent.name + " is derived from it; delete or replace the sum first");
+      }
+      if (dependent.checked) {
+        try {
+          if (dependent.type == MatrixTypes.TYPE_INT) {
+            diff.checkAddTo((int[][]) load(dependent), sum.getValue());
+          } else {
+            diff.checkAddTo((long[][]) load(dependent), sum.getValue());
+          }
+        } catch (ArithmeticException e) {
+          throw new ArithmeticException("Cannot update " + name + ": sum " + dependent.name + " would overflow. "
+              + e.getMessage());
+        }
+      }
+    }
+
+    delta.applyTo(matrix);
+    modified(entry);
+    for (Map.Entry<Entry, Long> sum : sums.entrySet()) {
+      Entry dependent = sum.getKey();
+      if (dependent.type == MatrixTypes.TYPE_INT) {
+        diff.addTo((int[][]) load(dependent), sum.getValue());
+      } else {
+        diff.addTo((long[][]) load(dependent), sum.getValue());
+      }
+      modified(dependent);
+    }
+    return diff;
+  }
+
+  /*
+   * Returns the named matrix, reloading it from disk if it was spilled. The
+   * matrix stays pinned in memory until unpinAll() is called, so callers may
+   * hold several handles at once without one spilling another.
+   */
+  public Object get(String name) throws IOException {
+    return load(lookup(name));
+  }
+
+  private Object load(Entry entry) throws IOException {
+    if (!entry.pinned) {
+      entry.pinned = true;
+      pinned.add(entry);
+    }
+    if (entry.matrix == null) {
+      reload(entry);
+    }
+    return entry.matrix;
+  }
+
+  public boolean delete(String name) throws IOException {
+    Entry entry = entries.remove(name);
+    if (entry == null) {
+      return false;
+    }
+    discard(entry);
+    return true;
+  }
+
+  public void unpinAll() throws IOException {
+    for (Entry entry : pinned) {
+      entry.pinned = false;
+    }
+    pinned.clear();
+    spillToQuota();
+  }
+
+  @Override
+  public void close() {
+    for (Entry entry : entries.values()) {
+      try {
+        entry.pinned = false;
+        discard(entry);
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Could not delete spill file for " + entry.name, e);
+      }
+    }
+    entries.clear();
+    pinned.clear();
+  }
+
+  private Entry lookup(String name) {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      throw new IllegalArgumentException("Unknown matrix handle: " + name);
+    }
+    return entry;
+  }
+
+  /*
+   * Counts how many times each sum derived from the source includes it, along
+   * every chain of sums. A sum listing the same operand twice appears twice
+   * among its dependents. Links only point at older entries, so there are no
+   * cycles.
+   */
+  private void collectSums(Entry source, long times, Map<Entry, Long> sums) {
+    for (Entry dependent : source.dependents) {
+      sums.merge(dependent, times, Math::addExact);
+      collectSums(dependent, times, sums);
+    }
+  }
+
+  // A spill file no longer matches a modified matrix
+  private void modified(Entry entry) throws IOException {
+    deleteSpillFile(entry);
+  }
+
+  private void deleteSpillFile(Entry entry) throws IOException {
+    if (entry.spillFile != null) {
+      Files.deleteIfExists(entry.spillFile);
+      entry.spillFile = null;
+      spillUsed -= entry.bytes();
+    }
+  }
+
+  // Matrices that would need a new spill file past the spill quota stay in memory
+  private boolean canSpill(Entry entry, long spillBytes) {
+    return entry.spillFile != null || spillBytes + entry.bytes() <= spillQuota;
+  }
+
+  /*
+   * Whether a new matrix of the given size fits once unpinned matrices are
+   * spilled, following the same order as spillToQuota. The entry it replaces,
+   * if any, no longer counts.
+   */
+  private boolean hasRoomFor(long bytes, Entry replaced) {
+    long memory = memoryUsed + bytes;
+    long spill = spillUsed;
+    if (replaced != null) {
+      memory -= replaced.matrix != null ? replaced.bytes() : 0;
+      spill -= replaced.spillFile != null ? replaced.bytes() : 0;
+    }
+    for (Entry entry : entries.values()) {
+      if (memory <= memoryQuota) {
+        break;
+      }
+      if (entry != replaced && entry.matrix != null && !entry.pinned && canSpill(entry, spill)) {
+        spill += entry.spillFile == null ? entry.bytes() : 0;
+        memory -= entry.bytes();
+      }
+    }
+    return memory <= memoryQuota;
+  }
+
+  private void spillToQuota() throws IOException {
+    Iterator<Entry> it = entries.values().iterator();
+    while (memoryUsed > memoryQuota && it.hasNext()) {
+      Entry entry = it.next();
+      if (entry.matrix != null && !entry.pinned && canSpill(entry, spillUsed)) {
+        spill(entry);
+      }
+    }
+  }
+
+  private void spill(Entry entry) throws IOException {
+    if (entry.spillFile == null) {
+      entry.spillFile = Files.createTempFile(spillDirectory, "matrix-", ".spill");
+      spillUsed += entry.bytes();
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(entry.spillFile)))) {
+        MatrixProtocol.writeMatrix(out, entry.matrix, arena.ioBuffer(0));
+      }
+    }
+    release(entry.matrix);
+    entry.matrix = null;
+    memoryUsed -= entry.bytes();
+    LOGGER.log(Level.FINE, "Spilled matrix " + entry.name + " to " + entry.spillFile);
+  }
+
+  // Spill files are kept after reloading until the matrix is modified
+  private void reload(Entry entry) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(entry.spillFile)))) {
+      entry.matrix = MatrixProtocol.readMatrix(in, arena);
+    }
+    memoryUsed += entry.bytes();
+    spillToQuota();
+  }
+
+  // Sums derived from a discarded entry keep their current values but are unlinked
+  private void discard(Entry entry) throws IOException {
+    for (Entry source : entry.sources) {
+      source.dependents.remove(entry);
+    }
+    for (Entry dependent : entry.dependents) {
+      dependent.sources.removeIf(source -> source == entry);
+    }
+    entry.sources.clear();
+    entry.dependents.clear();
+    if (entry.pinned) {
+      pinned.remove(entry);
+      entry.pinned = false;
+    }
+    if (entry.matrix != null) {
+      release(entry.matrix);
+      entry.matrix = null;
+      memoryUsed -= entry.bytes();
+    }
+    deleteSpillFile(entry);
+  }
+
+  private void release(Object matrix) {
+    arena.releaseMatrix(matrix);
+  }
+
+  private static class Entry {
+    final String name;
+    final int type;
+    final int rows;
+    final int cols;
+    Object matrix; // null while spilled
+    Path spillFile;
+    boolean pinned;
+    boolean checked; // Computed with overflow checks, so patches are checked too
+    final List<Entry> sources = new ArrayList<>();
+    final List<Entry> dependents = new ArrayList<>();
+
+    Entry(String name, int type, int rows, int cols) {
+      this.name = name;
+      this.type = type;
+      this.rows = rows;
+      this.cols = cols;
+    }
+
+    long bytes() {
+      return (long) rows * cols * MatrixTypes.bytesPerElement(type);
+    }
+  }
+}
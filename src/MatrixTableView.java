@@ -0,0 +1,258 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Swing view of a single matrix. The table reads straight from the matrix
+         array and only formats the cells currently on screen, so large matrices
+         display without building a text document. Summary statistics are
+         computed off the event dispatch thread and shown above the table.
+
+         Visible cells are formatted on the event dispatch thread as they are
+         painted. A screen holds at most a few thousand cells and each one is a
+         single toString call, so formatting them in a background worker would
+         add a hand-off per scroll without saving noticeable time.
+*/
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableColumnModel;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
+import java.awt.*;
+
+public class MatrixTableView extends JPanel {
+  private static final long serialVersionUID = 1L;
+  private static final int COLUMN_WIDTH = 56;
+
+  private final String title;
+  private final JLabel summaryLabel;
+  private final MatrixTableModel model;
+  private final JTable table;
+  private final RowHeaderModel rowHeaderModel;
+  private final JList<String> rowHeader;
+  private SwingWorker<String, Void> summaryWorker;
+
+  public MatrixTableView(String title) {
+    super(new BorderLayout(5, 5));
+    this.title = title;
+
+    summaryLabel = new JLabel(title + ": no matrix");
+    add(summaryLabel, BorderLayout.NORTH);
+
+    model = new MatrixTableModel();
+    table = new JTable(model);
+    table.setAutoCreateColumnsFromModel(false); // Columns are built in matrixChanged
+    table.setFont(new Font("Monospaced", Font.PLAIN, 12));
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+    table.setCellSelectionEnabled(true);
+    table.getTableHeader().setReorderingAllowed(false);
+    DefaultTableCellRenderer renderer = new DefaultTableCellRenderer();
+    renderer.setHorizontalAlignment(SwingConstants.RIGHT);
+    table.setDefaultRenderer(Object.class, renderer);
+
+    // Row numbers come from a list model too, so they are also rendered lazily
+    rowHeaderModel = new RowHeaderModel();
+    rowHeader = new JList<>(rowHeaderModel);
+    rowHeader.setFixedCellWidth(COLUMN_WIDTH);
+    rowHeader.setFixedCellHeight(table.getRowHeight());
+    rowHeader.setBackground(table.getTableHeader().getBackground());
+    rowHeader.setFocusable(false);
+
+    JScrollPane scrollPane = new JScrollPane(table);
+    scrollPane.setRowHeaderView(rowHeader);
+    add(scrollPane, BorderLayout.CENTER);
+  }
+
+  // Accepts any matrix type from MatrixTypes; must be called on the event dispatch thread
+  public void setMatrix(Object matrix) {
+    model.setMatrix(matrix);
+    matrixChanged(MatrixTypes.rows(matrix), MatrixTypes.cols(matrix));
+  }
+
+  public void clear() {
+    if (summaryWorker != null) {
+      summaryWorker.cancel(false);
+    }
+    model.setMatrix(null);
+    table.setColumnModel(new DefaultTableColumnModel());
+    rowHeaderModel.refresh();
+    summaryLabel.setText(title + ": no matrix");
+  }
+
+  private void matrixChanged(int rows, int cols) {
+    // Building a detached column model avoids a table event for every column
+    if (table.getColumnCount() != cols) {
+      TableColumnModel columns = new DefaultTableColumnModel();
+      for (int j = 0; j < cols; j++) {
+        TableColumn column = new TableColumn(j, COLUMN_WIDTH);
+        column.setHeaderValue(model.getColumnName(j));
+        columns.addColumn(column);
+      }
+      table.setColumnModel(columns);
+    }
+    rowHeaderModel.refresh();
+
+    String dimensions = title + ": " + rows + " x " + cols + " "
+        + MatrixTypes.name(MatrixTypes.typeOf(model.matrix));
+    summaryLabel.setText(dimensions + " (summarizing...)");
+    if (summaryWorker != null) {
+      summaryWorker.cancel(false);
+    }
+
+    final Object matrix = model.matrix;
+    summaryWorker = new SwingWorker<String, Void>() {
+      @Override
+      protected String doInBackground() {
+        return dimensions + "   " + summarize(matrix);
+      }
+
+      @Override
+      protected void done() {
+        if (!isCancelled()) {
+          try {
+            summaryLabel.setText(get());
+          } catch (Exception e) {
+            summaryLabel.setText(dimensions);
+          }
+        }
+      }
+    };
+    summaryWorker.execute();
+  }
+
+  private static String summarize(Object matrix) {
+    switch (MatrixTypes.typeOf(matrix)) {
+      case MatrixTypes.TYPE_INT:
+        return summarize((int[][]) matrix);
+      case MatrixTypes.TYPE_LONG:
+        return summarize((long[][]) matrix);
+      case MatrixTypes.TYPE_FLOAT:
+        return summarize((float[][]) matrix);
+      default:
+        return summarize((double[][]) matrix);
+    }
+  }
+
+  private static String summarize(int[][] matrix) {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    long sum = 0;
+    for (int[] row : matrix) {
+      for (int val : row) {
+        min = Math.min(min, val);
+        max = Math.max(max, val);
+        sum += val;
+      }
+    }
+    return "min " + min + "   max " + max + "   sum " + sum;
+  }
+
+  private static String summarize(long[][] matrix) {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    long sum = 0;
+    for (long[] row : matrix) {
+      for (long val : row) {
+        min = Math.min(min, val);
+        max = Math.max(max, val);
+        sum += val;
+      }
+    }
+    return "min " + min + "   max " + max + "   sum " + sum;
+  }
+
+  private static String summarize(float[][] matrix) {
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    double sum = 0;
+    for (float[] row : matrix) {
+      for (float val : row) {
+        min = Math.min(min, val);
+        max = Math.max(max, val);
+        sum += val;
+      }
+    }
+    return "min " + min + "   max " + max + "   sum " + sum;
+  }
+
+  private static String summarize(double[][] matrix) {
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    double sum = 0;
+    for (double[] row : matrix) {
+      for (double val : row) {
+        min = Math.min(min, val);
+        max = Math.max(max, val);
+        sum += val;
+      }
+    }
+    return "min " + min + "   max " + max + "   sum " + sum;
+  }
+
+  private class RowHeaderModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+    private int size;
+
+    void refresh() {
+      int oldSize = size;
+      size = model.getRowCount();
+      if (oldSize > 0) {
+        fireIntervalRemoved(this, 0, oldSize - 1);
+      }
+      if (size > 0) {
+        fireIntervalAdded(this, 0, size - 1);
+      }
+    }
+
+    @Override
+    public int getSize() {
+      return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+      return Integer.toString(index);
+    }
+  }
+
+  private static class MatrixTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private Object matrix;
+    private int type;
+
+    void setMatrix(Object matrix) {
+      this.matrix = matrix;
+      this.type = matrix != null ? MatrixTypes.typeOf(matrix) : MatrixTypes.TYPE_INT;
+      fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+      return matrix != null ? MatrixTypes.rows(matrix) : 0;
+    }
+
+    @Override
+    public int getColumnCount() {
+      return matrix != null ? MatrixTypes.cols(matrix) : 0;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return Integer.toString(column);
+    }
+
+    // Only called for cells being painted, on the event dispatch thread
+    @Override
+    public Object getValueAt(int row, int column) {
+      switch (type) {
+        case MatrixTypes.TYPE_INT:
+          return Integer.toString(((int[][]) matrix)[row][column]);
+        case MatrixTypes.TYPE_LONG:
+          return Long.toString(((long[][]) matrix)[row][column]);
+        case MatrixTypes.TYPE_FLOAT:
+          return Float.toString(((float[][]) matrix)[row][column]);
+        default:
+          return Double.toString(((double[][]) matrix)[row][column]);
+      }
+    }
+  }
+}
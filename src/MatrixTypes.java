@@ -0,0 +1,166 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Element types a matrix may hold and the rules for combining them. A
+         matrix is carried as its primitive array (int[][], long[][], float[][]
+         or double[][]) and identified by a type tag, so elements are never
+         boxed. Mixed operands are widened to a common type before processing:
+         int < long < float < double, except that an int or long mixed with
+         float widens to double, since a float holds only 24 significant bits.
+         A double holds every int exactly but longs only up to 2^53, so longs
+         mixed with floating point values beyond that are rounded.
+*/
+public class MatrixTypes {
+  // Type tags, also used on the wire
+  public static final int TYPE_INT = 0;
+  public static final int TYPE_LONG = 1;
+  public static final int TYPE_FLOAT = 2;
+  public static final int TYPE_DOUBLE = 3;
+
+  private MatrixTypes() {
+    // Private constructor to prevent instantiation
+  }
+
+  public static int typeOf(Object matrix) {
+    if (matrix instanceof int[][]) {
+      return TYPE_INT;
+    }
+    if (matrix instanceof long[][]) {
+      return TYPE_LONG;
+    }
+    if (matrix instanceof float[][]) {
+      return TYPE_FLOAT;
+    }
+    if (matrix instanceof double[][]) {
+      return TYPE_DOUBLE;
+    }
+    throw new IllegalArgumentException("Not a supported matrix: " + matrix);
+  }
+
+  public static String name(int type) {
+    switch (type) {
+      case TYPE_INT:
+        return "int";
+      case TYPE_LONG:
+        return "long";
+      case TYPE_FLOAT:
+        return "float";
+      case TYPE_DOUBLE:
+        return "double";
+      default:
+        throw new IllegalArgumentException("Unknown matrix type " + type);
+    }
+  }
+
+  public static int bytesPerElement(int type) {
+    return type == TYPE_INT || type == TYPE_FLOAT ? 4 : 8;
+  }
+
+  public static int rows(Object matrix) {
+    return ((Object[]) matrix).length;
+  }
+
+  public static int cols(Object matrix) {
+    switch (typeOf(matrix)) {
+      case TYPE_INT:
+        return ((int[][]) matrix)[0].length;
+      case TYPE_LONG:
+        return ((long[][]) matrix)[0].length;
+      case TYPE_FLOAT:
+        return ((float[][]) matrix)[0].length;
+      default:
+        return ((double[][]) matrix)[0].length;
+    }
+  }
+
+  // Common type two operands are widened to before they are combined
+  public static int widen(int type1, int type2) {
+    int wider = Math.max(type1, type2);
+    if (wider == TYPE_FLOAT && type1 != type2) {
+      return TYPE_DOUBLE; // Mixed with int or long
+    }
+    return wider;
+  }
+
+  public static Object newMatrix(int type, int rows, int cols) {
+    switch (type) {
+      case TYPE_INT:
+        return new int[rows][cols];
+      case TYPE_LONG:
+        return new long[rows][cols];
+      case TYPE_FLOAT:
+        return new float[rows][cols];
+      case TYPE_DOUBLE:
+        return new double[rows][cols];
+      default:
+        throw new IllegalArgumentException("Unknown matrix type " + type);
+    }
+  }
+
+  // Returns the matrix itself when it already has the type, else a widened copy
+  public static Object convert(Object matrix, int type) {
+    if (typeOf(matrix) == type) {
+      return matrix;
+    }
+    Object result = newMatrix(type, rows(matrix), cols(matrix));
+    convertInto(matrix, result);
+    return result;
+  }
+
+  // Widens the matrix into a target of the same shape, such as a pooled buffer
+  public static void convertInto(Object matrix, Object target) {
+    int from = typeOf(matrix);
+    int type = typeOf(target);
+    if (from == type || widen(from, type) != type) {
+      throw new IllegalArgumentException("Cannot convert " + name(from) + " matrix to " + name(type));
+    }
+    if (rows(target) != rows(matrix) || cols(target) != cols(matrix)) {
+      throw new IllegalArgumentException("Conversion target must have the same dimensions");
+    }
+
+    for (int i = 0; i < rows(matrix); i++) {
+      switch (from) {
+        case TYPE_INT:
+          convertRow(((int[][]) matrix)[i], target, type, i);
+          break;
+        case TYPE_LONG:
+          convertRow(((long[][]) matrix)[i], target, i);
+          break;
+        default:
+          convertRow(((float[][]) matrix)[i], target, i);
+          break;
+      }
+    }
+  }
+
+  // Ints widen to long or double, never to float
+  private static void convertRow(int[] row, Object result, int type, int i) {
+    if (type == TYPE_LONG) {
+      long[] target = ((long[][]) result)[i];
+      for (int j = 0; j < row.length; j++) {
+        target[j] = row[j];
+      }
+    } else {
+      double[] target = ((double[][]) result)[i];
+      for (int j = 0; j < row.length; j++) {
+        target[j] = row[j];
+      }
+    }
+  }
+
+  // Longs only widen to double
+  private static void convertRow(long[] row, Object result, int i) {
+    double[] target = ((double[][]) result)[i];
+    for (int j = 0; j < row.length; j++) {
+      target[j] = row[j];
+    }
+  }
+
+  // Floats only widen to double
+  private static void convertRow(float[] row, Object result, int i) {
+    double[] target = ((double[][]) result)[i];
+    for (int j = 0; j < row.length; j++) {
+      target[j] = row[j];
+    }
+  }
+}
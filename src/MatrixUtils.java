@@ -20,8 +20,56 @@ public class MatrixUtils {
     return sb.toString();
   }
 
-  public static void printMatrixInfo(int[][] matrix, String name) {
-    System.out.println(name + " dimensions: " + matrix.length + "x" + matrix[0].length);
+  public static String matrixToString(long[][] matrix) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < matrix.length; i++) {
+      for (int j = 0; j < matrix[i].length; j++) {
+        sb.append(String.format("%4d", matrix[i][j]));
+      }
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  public static String matrixToString(float[][] matrix) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < matrix.length; i++) {
+      for (int j = 0; j < matrix[i].length; j++) {
+        sb.append(String.format("%10.3f", matrix[i][j]));
+      }
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  public static String matrixToString(double[][] matrix) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < matrix.length; i++) {
+      for (int j = 0; j < matrix[i].length; j++) {
+        sb.append(String.format("%10.3f", matrix[i][j]));
+      }
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  // Formats a matrix of any supported element type (see MatrixTypes)
+  public static String matrixToString(Object matrix) {
+    switch (MatrixTypes.typeOf(matrix)) {
+      case MatrixTypes.TYPE_INT:
+        return matrixToString((int[][]) matrix);
+      case MatrixTypes.TYPE_LONG:
+        return matrixToString((long[][]) matrix);
+      case MatrixTypes.TYPE_FLOAT:
+        return matrixToString((float[][]) matrix);
+      default:
+        return matrixToString((double[][]) matrix);
+    }
+  }
+
+  public static void printMatrixInfo(Object matrix, String name) {
+    System.out.println(name + " (" + MatrixTypes.name(MatrixTypes.typeOf(matrix)) + ") dimensions: "
+        + MatrixTypes.rows(matrix) + "x" + MatrixTypes.cols(matrix));
     System.out.println("Contents:");
     System.out.println(matrixToString(matrix));
   }
@@ -47,11 +95,12 @@ public class MatrixUtils {
         return false;
       }
 
-      // Check if file has enough numbers for two matrices
+      // Check if file has enough numbers for two matrices; elements may be
+      // integers or decimals, the client picks the element type per matrix
       int expectedNumbers = rows * cols * 2;
       int count = 0;
-      while (scanner.hasNextInt()) {
-        scanner.nextInt();
+      while (scanner.hasNextDouble()) {
+        scanner.nextDouble();
         count++;
       }
 
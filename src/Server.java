@@ -8,23 +8,47 @@ Purpose: Server component of matrix processing system. Accepts client connection
 */
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Server {
   private static final Logger LOGGER = Logger.getLogger(Server.class.getName());
   private static final int PORT = 12345;
   private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-  private static final String TERMINATE = "TERMINATE";
 
+  private final int port;
+  private final CountDownLatch started = new CountDownLatch(1);
   private ServerSocket server;
+  private ServerSocketChannel unixServer;
+  private Path unixSocketPath;
+  private Path spillDirectory;
   private final AtomicInteger clientCount = new AtomicInteger(0);
   private volatile boolean running;
 
   public Server() {
+    this(PORT);
+  }
+
+  // Port 0 picks a free port, which awaitStart reports
+  public Server(int port) {
+    this.port = port;
     setupLogger();
   }
 
@@ -40,10 +64,13 @@ public class Server {
 
   public void startServer() {
     try {
-      server = new ServerSocket(PORT, 100);
+      server = new ServerSocket(port, 100);
+      spillDirectory = prepareSpillDirectory(server.getLocalPort());
       running = true;
-      LOGGER.log(Level.INFO, "Server started on port " + PORT);
-      System.out.println("Server started on port " + PORT);
+      LOGGER.log(Level.INFO, "Server started on port " + server.getLocalPort());
+      System.out.println("Server started on port " + server.getLocalPort());
+      startUnixListener();
+      started.countDown();
 
       while (running) {
         waitForConnection();
@@ -52,21 +79,112 @@ public class Server {
     } catch (IOException e) {
       LOGGER.log(Level.SEVERE, "Server error", e);
       System.err.println("Server error: " + e.getMessage());
+      if (!running) {
+        stopServer(); // Release the port if setup failed after binding
+      }
+    } finally {
+      started.countDown(); // Release awaitStart if binding failed
     }
   }
 
-  private void waitForConnection() {
+  // Waits until the server accepts connections and returns its TCP port
+  public int awaitStart(long timeoutMillis) throws InterruptedException, IOException {
+    if (!started.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+      throw new IOException("Server did not start within " + timeoutMillis + " ms");
+    }
+    if (!running) {
+      throw new IOException("Server failed to start, see server_log.txt");
+    }
+    return server.getLocalPort();
+  }
+
+  /*
+   * Spill files live in a directory named after the port, so the next server
+   * on the same port removes whatever a crashed one left behind. No other live
+   * server can be using it, since it could not hold the same port.
+   */
+  private static Path prepareSpillDirectory(int localPort) throws IOException {
+    Path directory = Paths.get(ConnectionConfig.SPILL_ROOT, "matrix-spill-" + localPort);
+    deleteTree(directory);
+    return Files.createDirectories(directory);
+  }
+
+  private static void deleteTree(Path directory) throws IOException {
+    if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    List<Path> paths;
+    try (Stream<Path> walk = Files.walk(directory)) {
+      paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause(); // A file vanished while listing
+    }
+    for (Path path : paths) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private void startUnixListener() {
+    unixSocketPath = Transport.unixSocketPath();
+    if (unixSocketPath == null) {
+      return;
+    }
+
     try {
-      System.out.println("\nWaiting for connection...");
-      Socket connection = server.accept();
+      removeStaleSocket();
+      unixServer = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      unixServer.bind(UnixDomainSocketAddress.of(unixSocketPath), 100);
+      LOGGER.log(Level.INFO, "Server listening on unix socket " + unixSocketPath);
+      System.out.println("Server listening on unix socket " + unixSocketPath);
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.log(Level.WARNING, "Unix socket unavailable, serving TCP only", e);
+      unixServer = null;
+      return;
+    }
 
-      int clientId = clientCount.incrementAndGet();
-      LOGGER.log(Level.INFO, "Client " + clientId + " connected from " +
-          connection.getInetAddress().getHostAddress());
+    Thread unixThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (running) {
+          waitForUnixConnection();
+        }
+      }
+    });
+    unixThread.setDaemon(true);
+    unixThread.start();
+  }
 
-      ClientHandler handler = new ClientHandler(connection, clientId);
-      new Thread(handler).start();
+  /*
+   * A socket file left behind by an unclean shutdown stops the bind, so it is
+   * removed, but only when nothing answers on it. A live socket belongs to
+   * another server, and anything that is not a socket is not ours to delete.
+   */
+  private void removeStaleSocket() throws IOException {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(unixSocketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException e) {
+      return;
+    }
+    if (!attributes.isOther()) {
+      throw new IOException(unixSocketPath + " exists and is not a socket");
+    }
+    try {
+      Transport.connectUnix(unixSocketPath).close();
+    } catch (ConnectException e) {
+      Files.delete(unixSocketPath);
+      LOGGER.log(Level.INFO, "Removed stale unix socket " + unixSocketPath);
+      return;
+    }
+    throw new IOException("Another server is listening on " + unixSocketPath);
+  }
 
+  private void waitForConnection() {
+    try {
+      System.out.println("\nWaiting for connection...");
+      Socket connection = server.accept();
+      connection.setTcpNoDelay(true);
+      startHandler(Transport.of(connection));
     } catch (IOException e) {
       if (running) {
         LOGGER.log(Level.SEVERE, "Error accepting client connection", e);
@@ -74,16 +192,43 @@ public class Server {
     }
   }
 
+  private void waitForUnixConnection() {
+    try {
+      SocketChannel connection = unixServer.accept();
+      startHandler(Transport.of(connection, "unix:" + unixSocketPath));
+    } catch (IOException e) {
+      if (running) {
+        LOGGER.log(Level.SEVERE, "Error accepting unix socket connection", e);
+      }
+    }
+  }
+
+  private void startHandler(Transport connection) {
+    int clientId = clientCount.incrementAndGet();
+    LOGGER.log(Level.INFO, "Client " + clientId + " connected from " + connection.getDescription());
+
+    ClientHandler handler = new ClientHandler(connection, clientId);
+    new Thread(handler).start();
+  }
+
   private class ClientHandler implements Runnable {
-    private final Socket connection;
+    private final Transport connection;
     private final int clientId;
-    private ObjectInputStream input;
-    private ObjectOutputStream output;
+    private final BufferPool.Arena arena;
+    private final MatrixRegistry registry;
+    private final List<Object> requestBuffers = new ArrayList<>();
+    private final Object[] reduceBatch = new Object[ConnectionConfig.REDUCE_BATCH_SIZE];
+    private DataInputStream input;
+    private DataOutputStream output;
     private boolean clientRunning;
+    private boolean requestRead;
 
-    public ClientHandler(Socket connection, int clientId) {
+    public ClientHandler(Transport connection, int clientId) {
       this.connection = connection;
       this.clientId = clientId;
+      this.arena = BufferPool.shared().newArena("client " + clientId);
+      this.registry = new MatrixRegistry(arena, spillDirectory, ConnectionConfig.REGISTRY_MEMORY_QUOTA,
+          ConnectionConfig.REGISTRY_SPILL_QUOTA, ConnectionConfig.REGISTRY_MAX_ENTRIES);
       this.clientRunning = true;
     }
 
@@ -100,67 +245,416 @@ public class Server {
     }
 
     private void setupStreams() throws IOException {
-      output = new ObjectOutputStream(connection.getOutputStream());
-      output.flush();
-      input = new ObjectInputStream(connection.getInputStream());
+      output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+      input = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
       LOGGER.log(Level.INFO, "Streams established for client " + clientId);
     }
 
     private void processClient() {
       try {
         while (clientRunning) {
-          // Check for TERMINATE command
-          if (input.available() > 0) {
-            Object inputObj = input.readObject();
-            if (inputObj instanceof String && ((String) inputObj).equals(TERMINATE)) {
-              LOGGER.log(Level.INFO, "Received TERMINATE command from client " + clientId);
-              clientRunning = false;
-              break;
-            }
+          int operation = input.readInt();
+          if (operation == MatrixProtocol.OP_TERMINATE) {
+            LOGGER.log(Level.INFO, "Received TERMINATE command from client " + clientId);
+            clientRunning = false;
+            break;
           }
 
-          // Read matrices
-          int[][] matrix1 = (int[][]) input.readObject();
-          int[][] matrix2 = (int[][]) input.readObject();
-
-          // Log receipt
-          LOGGER.log(Level.INFO, "Processing matrices from client " + clientId);
-
-          // Process matrices and get result
-          int[][] result = MatrixProcessor.processConcurrently(matrix1, matrix2);
-
-          // Log the result before sending
-          System.out.println("\nCalculated result matrix for client " + clientId + ":");
-          displayMatrix(result);
-
-          // Send result back to client
-          output.writeObject(result);
-          output.flush();
-          LOGGER.log(Level.INFO, "Sent result matrix to client " + clientId);
+          requestRead = false;
+          try {
+            switch (operation) {
+              case MatrixProtocol.OP_ADD:
+                processAdd();
+                break;
+              case MatrixProtocol.OP_PUT:
+                processPut();
+                break;
+              case MatrixProtocol.OP_GET:
+                processGet();
+                break;
+              case MatrixProtocol.OP_DELETE:
+                processDelete();
+                break;
+              case MatrixProtocol.OP_UPDATE:
+                processUpdate();
+                break;
+              case MatrixProtocol.OP_REDUCE:
+                processReduce();
+                break;
+              default:
+                throw new IOException("Unknown operation " + operation);
+            }
+          } catch (IllegalArgumentException | ArithmeticException e) {
+            LOGGER.log(Level.WARNING, "Rejected request from client " + clientId + ": " + e.getMessage());
+            rejectRequest(e);
+          } catch (RuntimeException e) {
+            // A bug rather than a bad request; report it instead of losing the handler
+            LOGGER.log(Level.SEVERE, "Unexpected error processing request from client " + clientId, e);
+            rejectRequest(e);
+          } finally {
+            for (Object buffer : requestBuffers) {
+              arena.releaseMatrix(buffer);
+            }
+            requestBuffers.clear();
+            registry.unpinAll();
+          }
         }
       } catch (EOFException e) {
         LOGGER.log(Level.INFO, "Client " + clientId + " closed connection");
-      } catch (IOException | ClassNotFoundException | InterruptedException | ExecutionException e) {
+      } catch (IOException | InterruptedException | ExecutionException e) {
         LOGGER.log(Level.SEVERE, "Error processing matrices from client " + clientId, e);
         try {
-          output.writeObject(null); // Indicate error to client
-          output.flush();
+          sendError(e);
         } catch (IOException ex) {
           LOGGER.log(Level.SEVERE, "Error sending error status to client", ex);
         }
       }
     }
 
-    private void displayMatrix(int[][] matrix) {
-      for (int[] row : matrix) {
-        for (int val : row) {
-          System.out.printf("%4d", val);
+    /*
+     * Reports a failed request. The connection carries on only if the whole
+     * request had been read; otherwise the rest of it is still in the stream
+     * and would be taken for the next request.
+     */
+    private void rejectRequest(RuntimeException e) throws IOException {
+      sendError(e);
+      if (!requestRead) {
+        LOGGER.log(Level.WARNING, "Closing connection to client " + clientId + " after a partly read request");
+        clientRunning = false;
+      }
+    }
+
+    // Called by each request once its last field has been read
+    private void endOfRequest() {
+      requestRead = true;
+    }
+
+    private void processAdd() throws IOException, InterruptedException, ExecutionException {
+      // Read the whole request before resolving handles, which may be rejected
+      Object operand1 = readOperand();
+      Object operand2 = readOperand();
+      String storeAs = input.readUTF();
+      endOfRequest();
+      Object matrix1 = resolveOperand(operand1);
+      Object matrix2 = resolveOperand(operand2);
+      int type = MatrixTypes.widen(MatrixTypes.typeOf(matrix1), MatrixTypes.typeOf(matrix2));
+      int rows = MatrixTypes.rows(matrix1);
+      int cols = MatrixTypes.cols(matrix1);
+      if (MatrixTypes.rows(matrix2) != rows || MatrixTypes.cols(matrix2) != cols) {
+        throw new IllegalArgumentException("Matrices must have the same dimensions");
+      }
+
+      // Log receipt
+      LOGGER.log(Level.FINE, "Processing " + MatrixTypes.name(type) + " matrices from client " + clientId);
+
+      // Process matrices and get result, widening operands into pooled buffers
+      Object result = acquireRequestBuffer(type, rows, cols);
+      MatrixProcessor.processTyped(widenTo(matrix1, type), widenTo(matrix2, type), result);
+
+      // Log the result before sending
+      System.out.println("\nCalculated result matrix for client " + clientId + ":");
+      displayMatrix(result);
+
+      if (storeAs.isEmpty()) {
+        // Send result back to client
+        sendMatrix(result);
+        LOGGER.log(Level.FINE, "Sent result matrix to client " + clientId);
+      } else {
+        requestBuffers.remove(result); // Now owned by the registry
+        registry.put(storeAs, result, handleNames(operand1, operand2), false); // Sums wrap
+        sendDone();
+        LOGGER.log(Level.FINE, "Stored result matrix as " + storeAs + " for client " + clientId);
+      }
+    }
+
+    private void processPut() throws IOException {
+      String name = input.readUTF();
+      Object matrix = MatrixProtocol.readMatrix(input, arena);
+      endOfRequest();
+      registry.put(name, matrix);
+      sendDone();
+      LOGGER.log(Level.FINE, "Stored matrix " + name + " for client " + clientId);
+    }
+
+    private void processGet() throws IOException {
+      String name = input.readUTF();
+      endOfRequest();
+      sendMatrix(registry.get(name));
+      LOGGER.log(Level.FINE, "Sent stored matrix " + name + " to client " + clientId);
+    }
+
+    private void processDelete() throws IOException {
+      String name = input.readUTF();
+      endOfRequest();
+      if (!registry.delete(name)) {
+        throw new IllegalArgumentException("Unknown matrix handle: " + name);
+      }
+      sendDone();
+      LOGGER.log(Level.FINE, "Deleted matrix " + name + " for client " + clientId);
+    }
+
+    /*
+     * Patches a stored matrix and the sums derived from it. When a sum is named,
+     * only its cells covered by the delta are sent back.
+     */
+    private void processUpdate() throws IOException {
+      String name = input.readUTF();
+      MatrixDelta delta = MatrixDelta.read(input);
+      String reportName = input.readUTF();
+      endOfRequest();
+      int[][] report = null;
+      if (!reportName.isEmpty()) {
+        Object stored = registry.get(reportName);
+        if (!(stored instanceof int[][])) {
+          throw new IllegalArgumentException("Delta reports need an int matrix: " + reportName);
+        }
+        report = (int[][]) stored;
+        delta.validateAgainst(report); // Before anything is modified
+      }
+
+      registry.update(name, delta);
+      LOGGER.log(Level.FINE, "Applied " + delta.size() + " element delta to " + name + " for client " + clientId);
+
+      if (report == null) {
+        sendDone();
+      } else {
+        output.writeInt(MatrixProtocol.STATUS_DELTA);
+        delta.snapshotOf(report).write(output);
+        output.flush();
+      }
+    }
+
+    /*
+     * Sums a stream of operands into one accumulator. Operands are buffered a
+     * batch at a time and their buffers reused once the batch is added, so
+     * memory stays bounded however many operands the client sends. Errors are
+     * held until the end of the stream so the connection stays in sync.
+     *
+     * Integer operands are summed in a long accumulator and floating point
+     * ones in a double accumulator, which the long one is widened into when
+     * the first floating point operand arrives. The result has the widened
+     * type of all operands (see MatrixTypes). For integer results the mode
+     * decides overflow: WRAP wraps, CHECKED fails, and WIDEN returns int sums
+     * as long. Long sums have no wider type, so WIDEN checks them like
+     * CHECKED. Floating point sums ignore the mode.
+     */
+    private void processReduce() throws IOException, InterruptedException, ExecutionException {
+      int mode = input.readInt();
+      if (mode < MatrixProtocol.REDUCE_WRAP || mode > MatrixProtocol.REDUCE_WIDEN) {
+        throw new IOException("Unknown reduction mode " + mode);
+      }
+      boolean checked = mode != MatrixProtocol.REDUCE_WRAP;
+
+      Object accumulator = null;
+      int resultType = MatrixTypes.TYPE_INT;
+      List<String> sources = new ArrayList<>();
+      RuntimeException failure = null;
+      int batched = 0;
+      int count = 0;
+
+      int kind;
+      while ((kind = input.readInt()) != MatrixProtocol.OPERAND_END) {
+        Object operand = readOperand(kind);
+        if (failure != null) {
+          releaseOperand(operand);
+          continue;
+        }
+
+        try {
+          Object matrix = resolveOperand(operand);
+          int type = MatrixTypes.typeOf(matrix);
+          if (count == 0) {
+            accumulator = newAccumulator(MatrixTypes.rows(matrix), MatrixTypes.cols(matrix));
+          } else if (MatrixTypes.rows(matrix) != MatrixTypes.rows(accumulator)
+              || MatrixTypes.cols(matrix) != MatrixTypes.cols(accumulator)) {
+            throw new IllegalArgumentException("Matrices must have the same dimensions");
+          }
+          resultType = count == 0 ? type : MatrixTypes.widen(resultType, type);
+          if (operand instanceof String) {
+            sources.add((String) operand);
+          }
+          count++;
+
+          if (accumulator instanceof long[][]
+              && (resultType == MatrixTypes.TYPE_FLOAT || resultType == MatrixTypes.TYPE_DOUBLE)) {
+            // Sum what is batched as integers, then carry on in floating point
+            reduceBatch(batched, accumulator, checked);
+            batched = 0;
+            Object doubleAccumulator = acquireRequestBuffer(MatrixTypes.TYPE_DOUBLE,
+                MatrixTypes.rows(accumulator), MatrixTypes.cols(accumulator));
+            MatrixTypes.convertInto(accumulator, doubleAccumulator);
+            releaseOperand(accumulator);
+            accumulator = doubleAccumulator;
+          }
+          reduceBatch[batched++] = matrix;
+          if (batched == reduceBatch.length) {
+            reduceBatch(batched, accumulator, checked);
+            batched = 0;
+          }
+        } catch (IllegalArgumentException | ArithmeticException e) {
+          failure = e;
+          releaseOperand(operand);
+          batched = 0;
+        }
+      }
+      String storeAs = input.readUTF();
+      endOfRequest();
+
+      if (failure == null && count == 0) {
+        failure = new IllegalArgumentException("Reduction needs at least one operand");
+      }
+      if (failure != null) {
+        Arrays.fill(reduceBatch, null);
+        throw failure;
+      }
+      reduceBatch(batched, accumulator, checked);
+      LOGGER.log(Level.FINE, "Reduced " + count + " matrices from client " + clientId);
+
+      Object result = accumulator;
+      int rows = MatrixTypes.rows(accumulator);
+      int cols = MatrixTypes.cols(accumulator);
+      if (resultType == MatrixTypes.TYPE_INT && mode != MatrixProtocol.REDUCE_WIDEN) {
+        result = acquireRequestBuffer(MatrixTypes.TYPE_INT, rows, cols);
+        if (checked) {
+          MatrixProcessor.narrowExact((long[][]) accumulator, (int[][]) result);
+        } else {
+          MatrixProcessor.narrowWrapping((long[][]) accumulator, (int[][]) result);
+        }
+      } else if (resultType == MatrixTypes.TYPE_FLOAT) {
+        result = acquireRequestBuffer(MatrixTypes.TYPE_FLOAT, rows, cols);
+        MatrixProcessor.narrow((double[][]) accumulator, (float[][]) result);
+      }
+
+      System.out.println("\nCalculated reduced matrix for client " + clientId + ":");
+      displayMatrix(result);
+
+      if (storeAs.isEmpty()) {
+        sendMatrix(result);
+        LOGGER.log(Level.FINE, "Sent result matrix to client " + clientId);
+      } else {
+        requestBuffers.remove(result); // Now owned by the registry
+        registry.put(storeAs, result, sources, checked);
+        sendDone();
+        LOGGER.log(Level.FINE, "Stored result matrix as " + storeAs + " for client " + clientId);
+      }
+    }
+
+    // A zeroed accumulator from the arena
+    private long[][] newAccumulator(int rows, int cols) {
+      long[][] accumulator = (long[][]) acquireRequestBuffer(MatrixTypes.TYPE_LONG, rows, cols);
+      for (long[] row : accumulator) {
+        Arrays.fill(row, 0L);
+      }
+      return accumulator;
+    }
+
+    // Hands the batched operands back even if their sum overflows
+    private void reduceBatch(int batched, Object accumulator, boolean checked)
+        throws IOException, InterruptedException, ExecutionException {
+      try {
+        if (batched > 0) {
+          if (accumulator instanceof long[][]) {
+            MatrixProcessor.reduceConcurrently(reduceBatch, batched, (long[][]) accumulator, checked);
+          } else {
+            MatrixProcessor.reduceConcurrently(reduceBatch, batched, (double[][]) accumulator);
+          }
+        }
+      } finally {
+        for (int k = 0; k < batched; k++) {
+          releaseOperand(reduceBatch[k]);
+          reduceBatch[k] = null;
+        }
+        registry.unpinAll();
+      }
+    }
+
+    // Returns an inline operand's buffer to the arena; handles are left alone
+    private void releaseOperand(Object operand) {
+      if (!(operand instanceof String) && requestBuffers.remove(operand)) {
+        arena.releaseMatrix(operand);
+      }
+    }
+
+    // Buffers taken here go back to the arena when the request ends
+    private Object acquireRequestBuffer(int type, int rows, int cols) {
+      Object buffer = arena.acquireMatrix(type, rows, cols);
+      requestBuffers.add(buffer);
+      return buffer;
+    }
+
+    private Object widenTo(Object matrix, int type) {
+      if (MatrixTypes.typeOf(matrix) == type) {
+        return matrix;
+      }
+      Object widened = acquireRequestBuffer(type, MatrixTypes.rows(matrix), MatrixTypes.cols(matrix));
+      MatrixTypes.convertInto(matrix, widened);
+      return widened;
+    }
+
+    private Object readOperand() throws IOException {
+      return readOperand(input.readInt());
+    }
+
+    // Returns an inline matrix, or the handle name to resolve once the request is read
+    private Object readOperand(int kind) throws IOException {
+      if (kind == MatrixProtocol.OPERAND_INLINE) {
+        Object matrix = MatrixProtocol.readMatrix(input, arena);
+        requestBuffers.add(matrix);
+        return matrix;
+      }
+      if (kind == MatrixProtocol.OPERAND_HANDLE) {
+        return input.readUTF();
+      }
+      throw new IOException("Unknown operand kind " + kind);
+    }
+
+    private List<String> handleNames(Object... operands) {
+      List<String> names = new ArrayList<>();
+      for (Object operand : operands) {
+        if (operand instanceof String) {
+          names.add((String) operand);
         }
-        System.out.println();
+      }
+      return names;
+    }
+
+    private Object resolveOperand(Object operand) throws IOException {
+      return operand instanceof String ? registry.get((String) operand) : operand;
+    }
+
+    private void sendMatrix(Object matrix) throws IOException {
+      output.writeInt(MatrixProtocol.STATUS_OK);
+      MatrixProtocol.writeMatrix(output, matrix, arena.ioBuffer(0));
+      output.flush();
+    }
+
+    private void sendDone() throws IOException {
+      output.writeInt(MatrixProtocol.STATUS_DONE);
+      output.flush();
+    }
+
+    private void sendError(Exception e) throws IOException {
+      output.writeInt(MatrixProtocol.STATUS_ERROR); // Indicate error to client
+      output.writeUTF(String.valueOf(e.getMessage()));
+      output.flush();
+    }
+
+    // Formatting every element costs far more than the request itself, so large
+    // results are only printed in full when debug logging is on
+    private void displayMatrix(Object matrix) {
+      int rows = MatrixTypes.rows(matrix);
+      int cols = MatrixTypes.cols(matrix);
+      if ((long) rows * cols <= ConnectionConfig.MAX_DISPLAY_ELEMENTS || LOGGER.isLoggable(Level.FINE)) {
+        System.out.print(MatrixUtils.matrixToString(matrix));
+      } else {
+        System.out.println(rows + "x" + cols + " " + MatrixTypes.name(MatrixTypes.typeOf(matrix))
+            + " matrix (contents shown with debug logging)");
       }
     }
 
     private void closeConnection() {
+      registry.close();
+      arena.close();
       try {
         if (output != null)
           output.close();
@@ -183,6 +677,13 @@ public class Server {
         server.close();
         LOGGER.log(Level.INFO, "Server stopped");
       }
+      if (unixServer != null && unixServer.isOpen()) {
+        unixServer.close();
+        Files.deleteIfExists(unixSocketPath);
+      }
+      if (spillDirectory != null) {
+        deleteTree(spillDirectory);
+      }
     } catch (IOException e) {
       LOGGER.log(Level.SEVERE, "Error stopping server", e);
     }
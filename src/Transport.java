@@ -0,0 +1,182 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: A connection between client and server over either TCP or a Unix domain
+         socket. Hides the difference between a Socket and a SocketChannel so the
+         rest of the system only deals with input and output streams.
+*/
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class Transport implements Closeable {
+  private static final Logger LOGGER = Logger.getLogger(Transport.class.getName());
+
+  private final Socket socket;
+  private final SocketChannel channel;
+  private final String description;
+
+  private Transport(Socket socket, SocketChannel channel, String description) {
+    this.socket = socket;
+    this.channel = channel;
+    this.description = description;
+  }
+
+  public static Transport of(Socket socket) {
+    return new Transport(socket, null, socket.getInetAddress().getHostAddress());
+  }
+
+  public static Transport of(SocketChannel channel, String description) {
+    return new Transport(null, channel, description);
+  }
+
+  // Prefers the Unix domain socket when one is configured and present, else TCP
+  public static Transport connect(String host, int port) throws IOException {
+    Path socketPath = unixSocketPath();
+    if (socketPath != null && !Files.exists(socketPath)) {
+      LOGGER.log(Level.WARNING, "Unix socket " + socketPath + " does not exist, using TCP");
+    } else if (socketPath != null) {
+      try {
+        return connectUnix(socketPath);
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Could not connect to unix socket " + socketPath + ", using TCP", e);
+      }
+    }
+    return connectTcp(host, port);
+  }
+
+  public static Transport connectTcp(String host, int port) throws IOException {
+    Socket socket = new Socket(host, port);
+    socket.setTcpNoDelay(true);
+    return of(socket);
+  }
+
+  public static Transport connectUnix(Path socketPath) throws IOException {
+    SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return of(channel, "unix:" + socketPath);
+  }
+
+  // Configured Unix domain socket path, or null when only TCP should be used
+  public static Path unixSocketPath() {
+    String path = ConnectionConfig.SOCKET_PATH;
+    return path == null || path.isEmpty() ? null : Paths.get(path);
+  }
+
+  public boolean isUnixDomain() {
+    return channel != null;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public InputStream getInputStream() throws IOException {
+    return socket != null ? socket.getInputStream() : new ChannelInputStream(channel);
+  }
+
+  public OutputStream getOutputStream() throws IOException {
+    return socket != null ? socket.getOutputStream() : new ChannelOutputStream(channel);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (socket != null) {
+      socket.close();
+    } else {
+      channel.close();
+    }
+  }
+
+  /*
+   * Channels.newInputStream and newOutputStream share the channel's blocking
+   * lock, so a reader blocked on one thread would stall writes from another.
+   * These streams go to the channel directly, which locks reads and writes
+   * independently. The wrapping ByteBuffer is kept while the caller passes the
+   * same array, as the buffered streams above them do.
+   */
+  private static class ChannelInputStream extends InputStream {
+    private final SocketChannel channel;
+    private final byte[] single = new byte[1];
+    private byte[] array;
+    private ByteBuffer buffer;
+
+    ChannelInputStream(SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int n = read(single, 0, 1);
+      return n < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (b != array) {
+        array = b;
+        buffer = ByteBuffer.wrap(b);
+      }
+      buffer.limit(off + len).position(off);
+      return channel.read(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  private static class ChannelOutputStream extends OutputStream {
+    private final SocketChannel channel;
+    private final byte[] single = new byte[1];
+    private byte[] array;
+    private ByteBuffer buffer;
+
+    ChannelOutputStream(SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      single[0] = (byte) b;
+      write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (b != array) {
+        array = b;
+        buffer = ByteBuffer.wrap(b);
+      }
+      buffer.limit(off + len).position(off);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+Programmer: Zach Nowlin
+Date: October 19, 2026
+Purpose: Compares the Unix domain socket with TCP loopback. Starts a server in
+         this process listening on both, stores a small and a large matrix and
+         then fetches them repeatedly over each transport. Fetching a stored
+         matrix involves no computation or console output on the server, so
+         the figures reflect the transport and the wire format.
+
+         Usage: java [-Dmatrix.socket.path=<path>] TransportBenchmark [requests]
+*/
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class TransportBenchmark {
+  private static final int LARGE_SIZE = 1000;
+  private static final int LARGE_REQUESTS = 200;
+
+  public static void main(String[] args) throws Exception {
+    int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    if (System.getProperty("matrix.socket.path") == null) {
+      // Must be set before ConnectionConfig is loaded
+      System.setProperty("matrix.socket.path",
+          Files.createTempDirectory("matrix-bench").resolve("server.sock").toString());
+    }
+
+    try (LocalServer server = LocalServer.start()) {
+      try (LocalServer.Session session = server.openTcp()) {
+        run(session, requests);
+      }
+      try (LocalServer.Session session = server.openUnix()) {
+        run(session, requests);
+      }
+    }
+  }
+
+  private static void run(LocalServer.Session session, int requests) throws IOException {
+    session.put("small", new int[1][1]);
+    session.put("large", new int[LARGE_SIZE][LARGE_SIZE]);
+
+    // Latency: one small round trip at a time
+    long[] times = new long[requests];
+    for (int k = 0; k < requests; k++) {
+      session.get("small");
+    }
+    for (int k = 0; k < requests; k++) {
+      long start = System.nanoTime();
+      session.get("small");
+      times[k] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+
+    // Throughput: large replies back to back
+    for (int k = 0; k < LARGE_REQUESTS / 10; k++) {
+      session.get("large");
+    }
+    long start = System.nanoTime();
+    for (int k = 0; k < LARGE_REQUESTS; k++) {
+      session.get("large");
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    double megabytes = (double) LARGE_REQUESTS * LARGE_SIZE * LARGE_SIZE * 4 / (1024 * 1024);
+
+    System.out.printf("%-8s round trip p50 %6.1f us  p99 %6.1f us   %dx%d replies %7.1f MB/s%n",
+        session.getTransport().isUnixDomain() ? "unix" : "tcp", times[requests / 2] / 1e3,
+        times[requests * 99 / 100] / 1e3, LARGE_SIZE, LARGE_SIZE, megabytes / seconds);
+  }
+}